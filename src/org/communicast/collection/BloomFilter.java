@@ -1,31 +1,93 @@
 package org.communicast.collection;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Random;
+import java.security.SecureRandom;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.communicast.util.Murmur3;
 
 /**
  * ¡,תʱظϢ
+ * ¾,ѯ,ֻдһ;һдںֻ,ֻһ
+ * ʴĹֻʱʵʲٶȷһС
  * 
  * @author huangkaixuan
  *
  */
-public class BloomFilter {
+public class BloomFilter implements DuplicateSuppressor {
 	public static final int MAP_CHECKPOINT_NUM = 6;// öٸ
+	private static final int MIN_CAPACITY = 1024;//ʴʱÿɵϢ
+	static final long MAX_BIT_MAP_SIZE = 1L << 31;//ÿλ
 
-	private final int bit_map_size;// С,bits
-	private final int critical_size; //ٽС
-	private final int check_block_len;
-	private final Byte[] map;
-	private final AtomicInteger map_length;
-	private final ReentrantReadWriteLock lock;
-	private final Condition condition_full;
-	private final Thread clear_thread;//߳
-	private final byte[] collision_mask;//512λͻ,һϢȫͬʱײ㲥ʧ
-	private final int mask = ~0 << 8;
+	private final double false_positive_rate;//Ŀ,0Ϊ̶С
+	private final long window;//ÿʱ,,0
+	private volatile Generations generations;//ǰ
+	private final AtomicInteger rotating;//ֻ
+	private final long key1, key2;//ϣԿ,ڵ㲻ͬ,һϢȫͬʱײ㲥ʧ
+	private final ThreadLocal<long[]> thread_hash;//̸߳õĹϣ
+	
+	/**
+	 * һλ
+	 */
+	private static class Generation {
+		final long bit_map_size;// λС,bits
+		final int hash_num;//
+		final int critical_size; //λٽֵ,0
+		final int capacity;//ٽֵ,0
+		final AtomicLongArray map;//λ,ÿlong64λ,CASλ
+		final AtomicInteger map_length;//λ
+		final AtomicInteger insertions;//
+		final long created;//ʱ,
+		
+		Generation(long bit_map_size, int hash_num, int critical_size, int capacity) {
+			this.bit_map_size = bit_map_size;
+			this.hash_num = hash_num;
+			this.critical_size = critical_size;
+			this.capacity = capacity;
+			map = new AtomicLongArray((int) ((bit_map_size + 63) / 64));
+			map_length = new AtomicInteger();
+			insertions = new AtomicInteger();
+			created = System.currentTimeMillis();
+		}
+		
+		/**
+		 * ͬһ
+		 * @return
+		 */
+		Generation renew() {
+			return new Generation(bit_map_size, hash_num, critical_size, capacity);
+		}
+		
+		/**
+		 * ˫عϣ(Kirsch-Mitzenmacher)i,˷ӳ䵽λΧ
+		 */
+		long position(long h1, long h2, int i) {
+			return ((h1 + i * h2) >>> 32) * bit_map_size >>> 32;
+		}
+		
+		boolean contains(long h1, long h2) {
+			for (int i = 0; i < hash_num; i++) {
+				long pointer = position(h1, h2, i);
+				if ((map.get((int) (pointer >>> 6)) & 1L << (pointer & 63)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * ¾,滻
+	 */
+	private static class Generations {
+		final Generation current;
+		final Generation previous;
+		
+		Generations(Generation current, Generation previous) {
+			this.current = current;
+			this.previous = previous;
+		}
+	}
 
 	/**
 	 * ָ,λʵ
@@ -36,54 +98,79 @@ public class BloomFilter {
 	 * @throws InvalidFilterSize
 	 */
 	public BloomFilter(int map_size, double loadFactor) throws InvalidFilterSize {
-		bit_map_size = map_size * 8;
-		double block_len = Math.log(bit_map_size) / Math.log(2);
-		check_block_len = (int) Math.ceil(block_len);
-		if (check_block_len > block_len) {
-			throw new InvalidFilterSize("Filter size has to be a power of two");
-		}
-		
-		int max_size = (int) Math.pow(2,512/MAP_CHECKPOINT_NUM);
-		if (bit_map_size > max_size) {
-			throw new InvalidFilterSize("Filter too big,maximum:"+max_size/8+"B");
-		}
-		
-		//System.out.println("check block len " + check_block_len);
-		critical_size = (int) (loadFactor * bit_map_size);
-		collision_mask = new byte[64];
-		new Random().nextBytes(collision_mask);
-		map_length = new AtomicInteger();
-		lock = new ReentrantReadWriteLock();
-		condition_full = lock.writeLock().newCondition();
-		clear_thread = new Thread() {
-			public void run() {
-				if (!lock.writeLock().tryLock()) {
-					return;
-				}
-				do {
-					condition_full.awaitUninterruptibly();
-					clear();
-				} while (true);
+		this(map_size, loadFactor, 0, 0);
+	}
+	
+	/**
+	 * ָÿʱʵ
+	 * 
+	 * @param map_size ÿС,ֽ
+	 * @param loadFactor λﵽֵʱֻ
+	 * @param max_insertions ÿﵽֵʱֻ,0
+	 * @param window ÿʱﵽֵʱֻ,,0
+	 * @throws InvalidFilterSize СΪ򳬹ÿλ
+	 */
+	public BloomFilter(int map_size, double loadFactor, int max_insertions, long window) throws InvalidFilterSize {
+		this(fixed(map_size, loadFactor, max_insertions), 0, window);
+	}
+	
+	private BloomFilter(Generation first, double false_positive_rate, long window) {
+		this.false_positive_rate = false_positive_rate;
+		this.window = window;
+		SecureRandom random = new SecureRandom();
+		key1 = random.nextLong();
+		key2 = random.nextLong();
+		thread_hash = new ThreadLocal<long[]>() {
+			protected long[] initialValue() {
+				return new long[2];
 			}
 		};
-		map = new Byte[bit_map_size/8];
-		clear();
-		//System.out.println("С:" + map.length + "B");
-		clear_thread.setDaemon(true);
-		clear_thread.start();
+		rotating = new AtomicInteger();
+		generations = new Generations(first, first.renew());
 	}
 	
 	/**
-	 * óͻ
-	 * @param buffer
+	 * ÿԤϢĿʴ
+	 * ʱʱ,ֻʱһʵʲٶȵһС
+	 * 
+	 * @param expected_insertions ÿԤϢ
+	 * @param false_positive_rate Ŀ
+	 * @param window ÿʱ,,0
+	 * @return
 	 */
-	private byte[] appendMaskBytes(byte[] buffer) {
-		byte[] padded = new byte[buffer.length + collision_mask.length];
-		System.arraycopy(buffer, 0, padded, 0, buffer.length);
-		System.arraycopy(collision_mask, 0, padded, buffer.length, collision_mask.length);
-		return padded;
+	public static BloomFilter create(int expected_insertions, double false_positive_rate, long window) {
+		if (expected_insertions <= 0 || !(false_positive_rate > 0 && false_positive_rate < 1)) {
+			throw new IllegalArgumentException("Invalid expected insertions or false positive rate");
+		}
+		return new BloomFilter(sized(expected_insertions, false_positive_rate), false_positive_rate, window);
 	}
-
+	
+	/**
+	 * ̶Сһ
+	 */
+	private static Generation fixed(int map_size, double loadFactor, int max_insertions) throws InvalidFilterSize {
+		if (map_size <= 0) {
+			throw new InvalidFilterSize("Filter size has to be positive");
+		}
+		long bit_map_size = map_size * 8L;
+		if (bit_map_size > MAX_BIT_MAP_SIZE) {
+			throw new InvalidFilterSize("Filter size exceeds " + MAX_BIT_MAP_SIZE / 8 + " bytes");
+		}
+		return new Generation(bit_map_size, MAP_CHECKPOINT_NUM, (int) Math.min(Integer.MAX_VALUE, loadFactor * bit_map_size), max_insertions);
+	}
+	
+	/**
+	 * ȷСһ:m = -n*ln(p)/ln(2)^2, k = m/n*ln(2)
+	 */
+	private static Generation sized(int capacity, double false_positive_rate) {
+		capacity = Math.max(MIN_CAPACITY, capacity);
+		double ln2 = Math.log(2);
+		long bit_map_size = (long) Math.ceil(-capacity * Math.log(false_positive_rate) / (ln2 * ln2));
+		bit_map_size = Math.min(MAX_BIT_MAP_SIZE, (bit_map_size + 63) / 64 * 64);
+		int hash_num = (int) Math.max(1, Math.min(16, Math.round((double) bit_map_size / capacity * ln2)));
+		return new Generation(bit_map_size, hash_num, 0, capacity);
+	}
+	
 	/**
 	 * 
 	 * 
@@ -91,88 +178,145 @@ public class BloomFilter {
 	 * @return Ѵڷfalse
 	 */
 	public boolean add(byte[] buffer) {
-		try {
-			buffer = MessageDigest.getInstance("SHA-512").digest(appendMaskBytes(buffer));
-			int current_byte = 0;
-			int bit_offset = 0;
-			int consumed = 0;
-			int to_consume_bits;
-			int map_position = 0;
-
-			
-			int check_byte;
-			int check_bit;
-			int current_consume_index = 0;
-			boolean exists = true;
-			boolean full = false;
-			
-			lock.readLock().lock();
-			do {
-				to_consume_bits = Math.min(8 - bit_offset, check_block_len - current_consume_index);
-				//System.out.println("Current byte index " + current_byte + ",byte value " + Integer.toBinaryString(buffer[current_byte] & 0xff) +",bitoffset:"+bit_offset);
-				int mid = (buffer[current_byte] << bit_offset & mask >> to_consume_bits & 0xff) >> (8 - to_consume_bits) << current_consume_index ;
-				map_position |= mid;
-				consumed += to_consume_bits;
-				//System.out.println("Consumed bits:" + to_consume_bits + ",consumed:" + consumed+",mid result:" + Integer.toBinaryString(mid) + ",current position value " + Integer.toBinaryString(map_position));
-				
-				bit_offset += to_consume_bits;
-				if (bit_offset > 7) {
-					bit_offset %= 8;
-					current_byte++;
-				}
-				current_consume_index = consumed%check_block_len;
-				
-				if (current_consume_index == 0) {
-					//
-					long pointer = Integer.toUnsignedLong(map_position);
-					
-					check_byte = (int) (pointer/8);
-					check_bit = (int) (pointer % 8);
-					//System.out.println("ָλ:" + pointer + "/" + bit_map_size + ",ֽ:" + check_byte + ",:" + check_bit);
-					if ((map[check_byte] << check_bit & 0x80) != 0x80) {
-						//Ϊ1
-						exists = false;
-						synchronized(map[check_byte]) {
-							map[check_byte] =  (byte) (map[check_byte] | 0x80 >> check_bit);
-						}
-						full = full || map_length.incrementAndGet() == critical_size; //ٽֵ,Ҫ
-					}
-				
-					map_position = 0;
-				}
-				
-				
-				
-			} while (consumed < check_block_len * MAP_CHECKPOINT_NUM);
-			
-			lock.readLock().unlock();
-				
-			if (full) {
-				//
-				lock.writeLock().lock();
-				condition_full.signalAll();
-				lock.writeLock().unlock();
-			} 
+		return add(buffer, 0, buffer.length);
+	}
 	
-			
-			return !exists;
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
+	/**
+	 * еһ,ƬֱԿ128λϣ
+	 * 
+	 * @param buffer
+	 * @param offset
+	 * @param length
+	 * @return Ѵڷfalse
+	 */
+	public boolean add(byte[] buffer, int offset, int length) {
+		long[] hash = thread_hash.get();
+		Murmur3.hash128(buffer, offset, length, key1, key2, hash);
+		return add(hash[0], hash[1]);
+	}
+	
+	/**
+	 * ժҪ(繤֤MD5),ժҪ뱾ԿϺʹ
+	 * 
+	 * @param digest 16ֽ
+	 * @return Ѵڷfalse
+	 */
+	public boolean addDigest(byte[] digest) {
+		return add(Murmur3.fmix64(Murmur3.getLong(digest, 0) ^ key1), Murmur3.fmix64(Murmur3.getLong(digest, 8) ^ key2));
+	}
+	
+	@Override
+	public boolean record(byte[] id) {
+		return addDigest(id);
+	}
+	
+	/**
+	 * ϣֵ㲢
+	 * 
+	 * @param h1
+	 * @param h2
+	 * @return Ѵڷfalse
+	 */
+	private boolean add(long h1, long h2) {
+		rotateIfNeeded(generations);
+		Generations gens = generations;
+		Generation current = gens.current;
+		boolean exists = true;
+		for (int i = 0; i < current.hash_num; i++) {
+			if (setBit(current.map, current.position(h1, h2, i))) {
+				//ɱ߳Ϊ1
+				exists = false;
+				current.map_length.incrementAndGet();
+			}
 		}
-		return true;
-
+		
+		if (!exists) {
+			//һдҲΪظ,ͬʱдһ,ֻʶ
+			exists = gens.previous.contains(h1, h2);
+			if (!exists) {
+				current.insertions.incrementAndGet();
+			}
+		} 
+		
+		return !exists;
 	}
-
+	
+	/**
+	 * ǰÿλС
+	 * @return λ
+	 */
+	public long getBitMapSize() {
+		return generations.current.bit_map_size;
+	}
+	
 	/**
-	 * λ
+	 * һдʱֻ,ֻһִ߳,̲߳ȴ
+	 * @param gens ߿
 	 */
-	private void clear() {
-		//System.out.println("");
-		map_length.set(0);
-		for(int i = 0; i < map.length; i ++) {
-			map[i] = 0;
+	private void rotateIfNeeded(Generations gens) {
+		Generation current = gens.current;
+		long age = window > 0 ? System.currentTimeMillis() - current.created : 0;
+		boolean full = current.critical_size > 0 && current.map_length.get() >= current.critical_size ||
+				current.capacity > 0 && current.insertions.get() >= current.capacity ||
+				window > 0 && age >= window;
+		if (!full || !rotating.compareAndSet(0, 1)) {
+			return;
+		}
+		try {
+			if (generations != gens) {
+				//ѱֻ߳
+				return;
+			}
+			Generation next = next(current, age);
+			if (window > 0 && age >= window * 2) {
+				//ѹ
+				generations = new Generations(next, next.renew());
+			} else {
+				generations = new Generations(next, current);
+			}
+		} finally {
+			rotating.set(0);
 		}
+	}
 	
+	/**
+	 * ȷһĴС
+	 * ʴʱʱ,һʵʲٶȹһʱڵϢ,ŴС4
+	 * @param current
+	 * @param age һʱ,
+	 * @return
+	 */
+	private Generation next(Generation current, long age) {
+		if (false_positive_rate <= 0 || window <= 0) {
+			return current.renew();
+		}
+		long observed = current.insertions.get() * window / Math.max(1, age);
+		long capacity = observed + observed / 4;//
+		capacity = Math.max(current.capacity / 4, Math.min(current.capacity * 4L, capacity));
+		capacity = Math.min(Integer.MAX_VALUE, capacity);
+		if (capacity == current.capacity) {
+			return current.renew();
+		}
+		return sized((int) capacity, false_positive_rate);
+	}
+
+	/**
+	 * λ,
+	 * @param map
+	 * @param pointer λ
+	 * @return λԭΪ0true
+	 */
+	private static boolean setBit(AtomicLongArray map, long pointer) {
+		int index = (int) (pointer >>> 6);
+		long bit = 1L << (pointer & 63);
+		long word;
+		do {
+			word = map.get(index);
+			if ((word & bit) != 0) {
+				return false;
+			}
+		} while (!map.compareAndSet(index, word, word | bit));
+		return true;
 	}
 }
 
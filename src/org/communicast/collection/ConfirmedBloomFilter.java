@@ -0,0 +1,31 @@
+package org.communicast.collection;
+
+/**
+ * ¡кٲ龫ȷȷ
+ * ȷֻϢʶ,δеΪ,Ϣ
+ * ȷеϢΪظ,¡ֻطŵϢҲᱻٴν
+ *
+ */
+public class ConfirmedBloomFilter implements DuplicateSuppressor {
+	private final BloomFilter bloom_filter;
+	private final ExpiringIdSet recent;//Ϣʶ
+
+	public ConfirmedBloomFilter(BloomFilter bloom_filter, ExpiringIdSet recent) {
+		this.bloom_filter = bloom_filter;
+		this.recent = recent;
+	}
+
+	@Override
+	public boolean record(byte[] id) {
+		if (bloom_filter.record(id)) {
+			//¡δ,뾫ȷ,ȷΪظ
+			return recent.record(id);
+		}
+		//ʱֻ龫ȷ,ظϢд
+		if (recent.contains(id)) {
+			return false;
+		}
+		//,Ǻ
+		return recent.record(id);
+	}
+}
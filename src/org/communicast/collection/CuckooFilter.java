@@ -0,0 +1,145 @@
+package org.communicast.collection;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+import org.communicast.util.Murmur3;
+
+/**
+ * ,ÿ¼16λָƺ͹ʱ
+ * ڼ¼Ϊλ,ɾ¼;ռʱ߳һ¼
+ *
+ */
+public class CuckooFilter implements DuplicateSuppressor {
+	private static final int BUCKET_SIZE = 4;//ÿͰĲ
+	private static final int MAX_KICKS = 500;//ʱ߳
+
+	private final int bucket_mask;
+	private final short[] fingerprints;//ָ,0Ϊ
+	private final int[] expires;//ʱ,
+	private final int ttl;//¼Ч,
+	private final long key1, key2;//ϣԿ
+	private final Random random;
+
+	/**
+	 * @param capacity ¼
+	 * @param ttl ¼Ч,
+	 */
+	public CuckooFilter(int capacity, int ttl) {
+		if (capacity <= 0 || ttl <= 0) {
+			throw new IllegalArgumentException("Capacity and ttl must be positive");
+		}
+		int buckets = Integer.highestOneBit(Math.max(1, (capacity + BUCKET_SIZE - 1) / BUCKET_SIZE - 1)) << 1;
+		bucket_mask = buckets - 1;
+		fingerprints = new short[buckets * BUCKET_SIZE];
+		expires = new int[buckets * BUCKET_SIZE];
+		this.ttl = ttl;
+		SecureRandom seed = new SecureRandom();
+		key1 = seed.nextLong();
+		key2 = seed.nextLong();
+		random = new Random(seed.nextLong());
+	}
+
+	@Override
+	public synchronized boolean record(byte[] id) {
+		long hash = Murmur3.fmix64(Murmur3.getLong(id, 0) ^ key1);
+		short fingerprint = fingerprint(Murmur3.fmix64(Murmur3.getLong(id, 8) ^ key2));
+		int i1 = (int) hash & bucket_mask;
+		int i2 = alternate(i1, fingerprint);
+		int now = now();
+
+		if (find(i1, fingerprint, now) >= 0 || find(i2, fingerprint, now) >= 0) {
+			return false;
+		}
+		if (put(i1, fingerprint, now + ttl, now) || put(i2, fingerprint, now + ttl, now)) {
+			return true;
+		}
+
+		//߳м¼
+		int bucket = random.nextBoolean() ? i1 : i2;
+		int expire = now + ttl;
+		for (int n = 0; n < MAX_KICKS; n++) {
+			int slot = bucket * BUCKET_SIZE + random.nextInt(BUCKET_SIZE);
+			short victim = fingerprints[slot];
+			int victim_expire = expires[slot];
+			fingerprints[slot] = fingerprint;
+			expires[slot] = expire;
+			fingerprint = victim;
+			expire = victim_expire;
+
+			bucket = alternate(bucket, fingerprint);
+			if (put(bucket, fingerprint, expire, now)) {
+				return true;
+			}
+		}
+		//ռ䲻,߳ļ¼
+		return true;
+	}
+
+	/**
+	 * ɾ¼
+	 * @param id
+	 * @return ڷtrue
+	 */
+	public synchronized boolean remove(byte[] id) {
+		long hash = Murmur3.fmix64(Murmur3.getLong(id, 0) ^ key1);
+		short fingerprint = fingerprint(Murmur3.fmix64(Murmur3.getLong(id, 8) ^ key2));
+		int i1 = (int) hash & bucket_mask;
+		int now = now();
+		int slot = find(i1, fingerprint, now);
+		if (slot < 0) {
+			slot = find(alternate(i1, fingerprint), fingerprint, now);
+		}
+		if (slot < 0) {
+			return false;
+		}
+		fingerprints[slot] = 0;
+		return true;
+	}
+
+	/**
+	 * Ͱвδڵָ
+	 * @return λ,ڷ-1
+	 */
+	private int find(int bucket, short fingerprint, int now) {
+		int start = bucket * BUCKET_SIZE;
+		for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+			if (fingerprints[slot] == fingerprint && expires[slot] - now > 0) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * ͰеĿλλ
+	 * @return Ͱfalse
+	 */
+	private boolean put(int bucket, short fingerprint, int expire, int now) {
+		int start = bucket * BUCKET_SIZE;
+		for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+			if (fingerprints[slot] == 0 || expires[slot] - now <= 0) {
+				fingerprints[slot] = fingerprint;
+				expires[slot] = expire;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * һѡͰ,ͰΪѡ
+	 */
+	private int alternate(int bucket, short fingerprint) {
+		return (bucket ^ (int) Murmur3.fmix64(fingerprint)) & bucket_mask;
+	}
+
+	private static short fingerprint(long hash) {
+		short fingerprint = (short) hash;
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+
+	private static int now() {
+		return (int) (System.currentTimeMillis() / 1000);
+	}
+}
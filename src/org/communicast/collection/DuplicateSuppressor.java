@@ -0,0 +1,17 @@
+package org.communicast.collection;
+
+/**
+ * 㲥ȥ
+ * Ϣʶ(㲥֤16ֽMD5ժҪ)жϢǷѴ
+ *
+ */
+public interface DuplicateSuppressor {
+	int ID_LENGTH = 16;//Ϣʶ
+
+	/**
+	 * ¼Ϣʶ
+	 * @param id Ϣʶ,16ֽ
+	 * @return ״γַtrue,ظfalse
+	 */
+	boolean record(byte[] id);
+}
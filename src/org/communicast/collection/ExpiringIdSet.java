@@ -0,0 +1,126 @@
+package org.communicast.collection;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.communicast.util.Murmur3;
+
+/**
+ * ȷȥ,¼Ϣʶ,û
+ * 벼¡һ¾ֻ,ʱ
+ *
+ */
+public class ExpiringIdSet implements DuplicateSuppressor {
+	private final int max_size;//ÿ¼,0
+	private final long window;//ÿʱ,,0
+	private volatile Generations generations;
+	private final AtomicInteger rotating;//ֻ
+
+	/**
+	 * Ϣʶ
+	 */
+	private static final class Id {
+		private final long high, low;
+
+		Id(byte[] id) {
+			low = Murmur3.getLong(id, 0);
+			high = Murmur3.getLong(id, 8);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (low ^ low >>> 32);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Id)) {
+				return false;
+			}
+			Id other = (Id) obj;
+			return low == other.low && high == other.high;
+		}
+	}
+
+	/**
+	 * ¾
+	 */
+	private static class Generations {
+		final Set<Id> current;
+		final Set<Id> previous;
+		final long created;//һʱ,
+
+		Generations(Set<Id> current, Set<Id> previous) {
+			this.current = current;
+			this.previous = previous;
+			created = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * @param max_size ÿ¼,0
+	 * @param window ÿʱ,,0
+	 */
+	public ExpiringIdSet(int max_size, long window) {
+		if (max_size <= 0 && window <= 0) {
+			throw new IllegalArgumentException("Either max_size or window must be positive");
+		}
+		this.max_size = max_size;
+		this.window = window;
+		rotating = new AtomicInteger();
+		generations = new Generations(newSet(), newSet());
+	}
+
+	private static Set<Id> newSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<Id, Boolean>());
+	}
+
+	@Override
+	public boolean record(byte[] id) {
+		rotateIfNeeded();
+		Generations gens = generations;
+		Id key = new Id(id);
+		if (!gens.current.add(key)) {
+			return false;
+		}
+		return !gens.previous.contains(key);
+	}
+
+	/**
+	 * Ƿ¼,¼
+	 * @param id
+	 * @return
+	 */
+	public boolean contains(byte[] id) {
+		Generations gens = generations;
+		Id key = new Id(id);
+		return gens.current.contains(key) || gens.previous.contains(key);
+	}
+
+	/**
+	 * һдʱֻ
+	 */
+	private void rotateIfNeeded() {
+		Generations gens = generations;
+		long age = window > 0 ? System.currentTimeMillis() - gens.created : 0;
+		boolean full = max_size > 0 && gens.current.size() >= max_size || window > 0 && age >= window;
+		if (!full || !rotating.compareAndSet(0, 1)) {
+			return;
+		}
+		try {
+			if (generations != gens) {
+				return;
+			}
+			if (window > 0 && age >= window * 2) {
+				//ѹ
+				generations = new Generations(newSet(), newSet());
+			} else {
+				generations = new Generations(newSet(), gens.current);
+			}
+		} finally {
+			rotating.set(0);
+		}
+	}
+}
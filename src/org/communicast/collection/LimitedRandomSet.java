@@ -4,18 +4,22 @@ import java.util.ArrayList;
 
 /**
  * ϣȡԪأ޶ϳ
+ * Ԫرв±ɾʱĩβԪλɾȡO(1)
  */
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 import java.util.function.Predicate;
 
 public class LimitedRandomSet<T> implements Set<T>{
-	private final HashSet<T> holdSet;	// ʼBEGIN
+	private final ArrayList<T> elements;	// Ԫ
+	private final HashMap<T, Integer> indexes;// Ԫе±
+	private final Random rand;
 	private int len;// бȣ0
 	public LimitedRandomSet() throws Exception {
 		this(0);
@@ -26,9 +30,14 @@ public class LimitedRandomSet<T> implements Set<T>{
 	 * @param collection
 	 */
 	public LimitedRandomSet(Collection<T> collection) {
-		holdSet = new HashSet<T>(collection);
+		elements = new ArrayList<T>(collection.size());
+		indexes = new HashMap<T, Integer>(collection.size() * 4 / 3 + 1);
+		rand = new Random();
+		for (T element : collection) {
+			put(element);
+		}
 	}
-	
+
 	/**
 	 * øϳʼƳ
 	 * @param collection
@@ -41,12 +50,13 @@ public class LimitedRandomSet<T> implements Set<T>{
 			throw new Exception("Random set length error");
 		}
 		len = max_length;
+		evict(null);
 	}
 
-	
+
 	/**
 	 * ָб
-	 * 
+	 *
 	 * @param max_length
 	 *            ڵ
 	 * @throws Exception
@@ -56,29 +66,73 @@ public class LimitedRandomSet<T> implements Set<T>{
 			throw new Exception("Random set length error");
 		}
 		len = max_length;
-		holdSet = new HashSet<T>();
+		elements = new ArrayList<T>();
+		indexes = new HashMap<T, Integer>();
+		rand = new Random();
 	}
 
+	/**
+	 * Ԫطŵĩβ
+	 * @param element
+	 * @return Ѵڷfalse
+	 */
+	private boolean put(T element) {
+		if (indexes.containsKey(element)) {
+			return false;
+		}
+		indexes.put(element, elements.size());
+		elements.add(element);
+		return true;
+	}
 
+	/**
+	 * Ƴָ±ԪأĩβԪ
+	 * @param index
+	 * @return ƳԪ
+	 */
+	private T removeAt(int index) {
+		int last = elements.size() - 1;
+		T element = elements.get(index);
+		T tail = elements.remove(last);
+		indexes.remove(element);
+		if (index != last) {
+			elements.set(index, tail);
+			indexes.put(tail, index);
+		}
+		return element;
+	}
+
+	/**
+	 * ʱƳԪ
+	 * @param removed ¼ƳԪأΪnull
+	 */
+	private void evict(Set<T> removed) {
+		if (len <= 0) {
+			return;
+		}
+		while (elements.size() > len) {
+			T element = removeAt(rand.nextInt(elements.size()));
+			if (removed != null) {
+				removed.add(element);
+			}
+		}
+	}
 
 	/**
 	 * Add an element to the set
-	 * 
+	 *
 	 * @param element
 	 * @return
 	 */
 	synchronized public boolean add(T element) {
-		Set<T> set = new HashSet<T>();
-		set.add(element);
-		if (holdSet.size() < len) {
-			return !addAll(set, null).isEmpty();
-		} else {
+		if (len > 0 && elements.size() >= len) {
 			return false;
 		}
+		return put(element);
 	}
-	 
-	
-	 
+
+
+
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -88,7 +142,8 @@ public class LimitedRandomSet<T> implements Set<T>{
 
 	/**
 	 * һϲָ
-	 * 
+	 * ʱ̭ԪأԪҲܱ̭
+	 *
 	 * @param elements
 	 * @return HashSet<T> Ԫصļ
 	 */
@@ -99,150 +154,174 @@ public class LimitedRandomSet<T> implements Set<T>{
 		Iterator<T> it = elements.iterator();
 		while (it.hasNext()) {
 			T element = it.next();
-			if (!holdSet.contains(element)) {
+			if (!indexes.containsKey(element) && !newElements.contains(element)
+					&& (removeIfCondition == null || !removeIfCondition.test(element))) {
 				newElements.add(element);
 			}
 		}
-		
-		// filter new elements to add
-		if (removeIfCondition != null) {
-			newElements.removeIf(removeIfCondition);
-		}
-		
-		// add new elements to local set asynchronously
-		if (!newElements.isEmpty()) {
-			holdSet.addAll(newElements);
-			if (holdSet.size() > len) {
-				try {
-					Set<T> toRemove = pick(holdSet.size() - len);
-					holdSet.removeAll(toRemove);
-					newElements.removeAll(toRemove);
-				} catch (Exception e) {
-				}
 
+		// add new elements to local set
+		if (!newElements.isEmpty()) {
+			for (T element : newElements) {
+				put(element);
 			}
+			Set<T> removed = new HashSet<T>();
+			evict(removed);
+			newElements.removeAll(removed);
 		}
 
 		return newElements;
 	}
 
 	@Override
-	public void clear() {
-		holdSet.clear();
-		
+	synchronized public void clear() {
+		elements.clear();
+		indexes.clear();
 	}
 
 	@Override
-	public boolean contains(Object element) {
-		return holdSet.contains(element);
+	synchronized public boolean contains(Object element) {
+		return indexes.containsKey(element);
 	}
 
-	
+
 	@Override
-	public boolean containsAll(Collection<?> c) {
-		return holdSet.containsAll(c);
+	synchronized public boolean containsAll(Collection<?> c) {
+		return indexes.keySet().containsAll(c);
 	}
 
 	@Override
-	public boolean isEmpty() {
-		return holdSet.isEmpty();
+	synchronized public boolean isEmpty() {
+		return elements.isEmpty();
 	}
-	
 
+
+	/**
+	 * ǰԪصĿգͨɾ
+	 */
 	@Override
-	public Iterator<T> iterator() {
-		return holdSet.iterator();
+	synchronized public Iterator<T> iterator() {
+		final Object[] snapshot = elements.toArray();
+		return new Iterator<T>() {
+			private int cursor;
+			private boolean removable;
+
+			public boolean hasNext() {
+				return cursor < snapshot.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (cursor >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				removable = true;
+				return (T) snapshot[cursor++];
+			}
+
+			public void remove() {
+				if (!removable) {
+					throw new IllegalStateException();
+				}
+				removable = false;
+				LimitedRandomSet.this.remove(snapshot[cursor - 1]);
+			}
+		};
 	}
 
 
 
 	/**
 	 * pick some randomized elements from the set
-	 * 
+	 * Floyd㷨ȡnͬ±ֻ꣬n
+	 *
 	 * @param n
-	 * @return
+	 * @return µļϣnСڼϳʱȫԪ
 	 * @throws Exception
 	 */
 	 synchronized public Set<T> pick(int n) throws Exception {
 		if (n <= 0) {
 			throw new Exception("Pick amount must be positive");
 		}
-		
-		if (n >= holdSet.size()) {
-			return holdSet;
-		}
-
-		Set<T> pickedElements = new HashSet<T>();
-		Set<Integer> indexesToPick = new HashSet<Integer>();
-		Random rand = new Random();
-		
-		List<T> holdList = new ArrayList<T>(holdSet);
-		
-		
-		
-		do {
-			indexesToPick.add(rand.nextInt(holdList.size()));
-		} while (indexesToPick.size() < n);
-		
-		Iterator<Integer> it = indexesToPick.iterator();
-		while (it.hasNext()) {
-			pickedElements.add(holdList.get(it.next()));
+
+		int size = elements.size();
+		if (n >= size) {
+			return new HashSet<T>(elements);
 		}
 
-		
+		Set<Integer> indexesToPick = new HashSet<Integer>(n * 4 / 3 + 1);
+		for (int j = size - n; j < size; j++) {
+			int t = rand.nextInt(j + 1);
+			if (!indexesToPick.add(t)) {
+				indexesToPick.add(j);
+			}
+		}
 
+		Set<T> pickedElements = new HashSet<T>(n * 4 / 3 + 1);
+		for (int index : indexesToPick) {
+			pickedElements.add(elements.get(index));
+		}
 		return pickedElements;
 	}
-	
-
-	
 
 	/**
 	 * Remove an element from the set
-	 * 
+	 *
 	 * @param element
 	 * @return
 	 */
 	 synchronized public boolean remove(Object element) {
-		return holdSet.remove(element);
+		Integer index = indexes.get(element);
+		if (index == null) {
+			return false;
+		}
+		removeAt(index);
+		return true;
 	}
 
-	
+
 
 	@Override
 	synchronized public boolean removeAll(Collection<?> c) {
-		return holdSet.removeAll(c);
+		boolean changed = false;
+		for (Object element : c) {
+			changed |= remove(element);
+		}
+		return changed;
 	}
 
 
 
 	@Override
-	public boolean retainAll(Collection<?> c) {
-		return holdSet.retainAll(c);
+	synchronized public boolean retainAll(Collection<?> c) {
+		boolean changed = false;
+		for (int i = elements.size() - 1; i >= 0; i--) {
+			if (!c.contains(elements.get(i))) {
+				removeAt(i);
+				changed = true;
+			}
+		}
+		return changed;
 	}
 
 	/**
 	 * get size
-	 * 
+	 *
 	 * @return
 	 */
-	public int size() {
-		return holdSet.size();
+	synchronized public int size() {
+		return elements.size();
 	}
-	
+
 
 	@Override
-	public Object[] toArray() {
-		return holdSet.toArray();
+	synchronized public Object[] toArray() {
+		return elements.toArray();
 	}
 
 	@SuppressWarnings("hiding")
 	@Override
-	public <T> T[] toArray(T[] a) {
-		return null;
+	synchronized public <T> T[] toArray(T[] a) {
+		return elements.toArray(a);
 	}
-
-	
-
-	
 }
@@ -0,0 +1,346 @@
+package org.communicast.collection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.communicast.util.Murmur3;
+
+/**
+ * ӳ䵽ļĲ¡,ͬһļɼʶǰĹ㲥
+ * ļϢͷ(ϣԿʱ)λ:һһıÿ
+ * ֻʱÿΪһ,ľһ߳ں̨Ϊÿ
+ * ´ֻʱÿδŵȴ;ͬʱʱµľһΪ,ֻ߳
+ * ϢͷĲŻ򴴽ʱЧ,ļȲʱ³ʼ
+ * ӳ仺岻֧CAS,λֶ,ѯ
+ *
+ */
+public class MappedBloomFilter implements DuplicateSuppressor, Closeable {
+	private static final int MAGIC = 0x43424631;//"CBF1"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4096;
+	private static final int CURRENT_OFFSET = 20;//һλ
+	private static final int PREVIOUS_OFFSET = 24;//һλ
+	private static final int KEY_OFFSET = 32;
+	private static final int CREATED_OFFSET = 48;//鴴ʱ,
+	private static final int LOCK_STRIPES = 64;//λֶ
+	private static final long MAX_CLOCK_SKEW = 3600000;//ʱڵǰʱֵ,
+
+	private static final ExecutorService clear_executor;//ÿ߳,
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final MappedByteBuffer[] regions;//λ
+	private final long bit_map_size;//ÿλ
+	private final int hash_num;
+	private final int critical_size;//λٽֵ
+	private final long window;//ÿʱ,,0
+	private final long key1, key2;
+	private final Object[] locks;
+	private volatile Generations generations;
+	private final AtomicInteger rotating;
+	private volatile CompletableFuture<Void> clearing;//ÿ
+
+	static {
+		clear_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "BLOOM_FILTER_CLEAR");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * һλ
+	 */
+	private static class Generation {
+		final int region;//λ
+		final MappedByteBuffer map;
+		final long created;
+		final AtomicInteger map_length;
+
+		Generation(int region, MappedByteBuffer map, long created, int map_length) {
+			this.region = region;
+			this.map = map;
+			this.created = created;
+			this.map_length = new AtomicInteger(map_length);
+		}
+	}
+
+	/**
+	 * ¾
+	 */
+	private static class Generations {
+		final Generation current;
+		final Generation previous;
+
+		Generations(Generation current, Generation previous) {
+			this.current = current;
+			this.previous = previous;
+		}
+	}
+
+	/**
+	 * 򿪻򴴽ļ,ļһʱ³ʼ
+	 * 
+	 * @param path ļ
+	 * @param map_size ÿС,ֽ
+	 * @param loadFactor λﵽֵʱֻ
+	 * @param window ÿʱ,,0
+	 * @throws IOException
+	 */
+	public MappedBloomFilter(File path, int map_size, double loadFactor, long window) throws IOException {
+		if (map_size <= 0) {
+			throw new IllegalArgumentException("Filter size has to be positive");
+		}
+		bit_map_size = (map_size + 7L) / 8 * 64;
+		if (bit_map_size > BloomFilter.MAX_BIT_MAP_SIZE) {
+			throw new IllegalArgumentException("Filter size exceeds " + BloomFilter.MAX_BIT_MAP_SIZE / 8 + " bytes");
+		}
+		hash_num = BloomFilter.MAP_CHECKPOINT_NUM;
+		critical_size = (int) Math.min(Integer.MAX_VALUE, loadFactor * bit_map_size);
+		this.window = window;
+		locks = new Object[LOCK_STRIPES];
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+		rotating = new AtomicInteger();
+
+		long region_size = bit_map_size / 8;
+		file = new RandomAccessFile(path, "rw");
+		channel = file.getChannel();
+		long now = System.currentTimeMillis();
+		boolean valid = file.length() == HEADER_SIZE + region_size * 3 && isValidHeader(now);
+		if (!valid) {
+			//ļ仯,³ʼ,չļĲϵͳ
+			file.setLength(0);
+			file.setLength(HEADER_SIZE + region_size * 3);
+		}
+		header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+		if (!valid) {
+			SecureRandom random = new SecureRandom();
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+			header.putLong(8, bit_map_size);
+			header.putInt(16, hash_num);
+			header.putInt(CURRENT_OFFSET, 0);
+			header.putInt(PREVIOUS_OFFSET, 1);
+			header.putLong(KEY_OFFSET, random.nextLong());
+			header.putLong(KEY_OFFSET + 8, random.nextLong());
+			for (int i = 0; i < 3; i++) {
+				header.putLong(CREATED_OFFSET + i * 8, now);
+			}
+		}
+		key1 = header.getLong(KEY_OFFSET);
+		key2 = header.getLong(KEY_OFFSET + 8);
+
+		regions = new MappedByteBuffer[3];
+		for (int i = 0; i < 3; i++) {
+			regions[i] = channel.map(MapMode.READ_WRITE, HEADER_SIZE + region_size * i, region_size);
+		}
+		int current = header.getInt(CURRENT_OFFSET);
+		int previous = header.getInt(PREVIOUS_OFFSET);
+		generations = new Generations(generation(current, true, now), generation(previous, false, now));
+		
+		//ϴιرǰÿδ
+		if (valid) {
+			clearing = clearAsync(regions[3 - current - previous]);
+		}
+	}
+
+	/**
+	 * УļеϢͷ
+	 * @param now
+	 * @return һҿšʱЧtrue
+	 * @throws IOException 
+	 */
+	private boolean isValidHeader(long now) throws IOException {
+		ByteBuffer params = ByteBuffer.allocate(CREATED_OFFSET + 24);
+		while (params.hasRemaining()) {
+			if (channel.read(params, params.position()) < 0) {
+				return false;
+			}
+		}
+		if (params.getInt(0) != MAGIC || params.getInt(4) != VERSION ||
+				params.getLong(8) != bit_map_size || params.getInt(16) != hash_num) {
+			return false;
+		}
+		int current = params.getInt(CURRENT_OFFSET);
+		int previous = params.getInt(PREVIOUS_OFFSET);
+		if (current < 0 || current > 2 || previous < 0 || previous > 2 || current == previous) {
+			return false;
+		}
+		for (int i = 0; i < 3; i++) {
+			long created = params.getLong(CREATED_OFFSET + i * 8);
+			if (created <= 0 || created > now + MAX_CLOCK_SKEW) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ļָһ
+	 * @param region
+	 * @param count Ƿͳλ
+	 * @param now ڸʱĴʱ䰴ʱ
+	 * @return
+	 */
+	private Generation generation(int region, boolean count, long now) {
+		MappedByteBuffer map = regions[region];
+		int map_length = 0;
+		if (count) {
+			for (int i = 0; i < map.capacity(); i += 8) {
+				map_length += Long.bitCount(map.getLong(i));
+			}
+		}
+		return new Generation(region, map, Math.min(header.getLong(CREATED_OFFSET + region * 8), now), map_length);
+	}
+
+	@Override
+	public boolean record(byte[] id) {
+		long h1 = Murmur3.fmix64(Murmur3.getLong(id, 0) ^ key1);
+		long h2 = Murmur3.fmix64(Murmur3.getLong(id, 8) ^ key2);
+
+		rotateIfNeeded(generations);
+		Generations gens = generations;
+		Generation current = gens.current;
+		boolean exists = true;
+		for (int i = 0; i < hash_num; i++) {
+			if (setBit(current.map, position(h1, h2, i))) {
+				exists = false;
+				current.map_length.incrementAndGet();
+			}
+		}
+		if (!exists) {
+			//һдҲΪظ
+			exists = contains(gens.previous.map, h1, h2);
+		}
+		return !exists;
+	}
+
+	private long position(long h1, long h2, int i) {
+		return ((h1 + i * h2) >>> 32) * bit_map_size >>> 32;
+	}
+
+	private boolean contains(MappedByteBuffer map, long h1, long h2) {
+		for (int i = 0; i < hash_num; i++) {
+			long pointer = position(h1, h2, i);
+			if ((map.getLong((int) (pointer >>> 6) * 8) & 1L << (pointer & 63)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * λ,longֶμ
+	 * @param map
+	 * @param pointer
+	 * @return λԭΪ0true
+	 */
+	private boolean setBit(MappedByteBuffer map, long pointer) {
+		int index = (int) (pointer >>> 6) * 8;
+		long bit = 1L << (pointer & 63);
+		if ((map.getLong(index) & bit) != 0) {
+			return false;
+		}
+		synchronized (locks[(index >>> 3) & LOCK_STRIPES - 1]) {
+			long word = map.getLong(index);
+			if ((word & bit) != 0) {
+				return false;
+			}
+			map.putLong(index, word | bit);
+			return true;
+		}
+	}
+
+	/**
+	 * һдʱֻ
+	 * @param gens
+	 */
+	private void rotateIfNeeded(Generations gens) {
+		Generation current = gens.current;
+		long now = window > 0 ? System.currentTimeMillis() : 0;
+		long age = now - current.created;
+		boolean full = current.map_length.get() >= critical_size || window > 0 && age >= window;
+		if (!full || !rotating.compareAndSet(0, 1)) {
+			return;
+		}
+		try {
+			if (generations != gens) {
+				return;
+			}
+			if (now == 0) {
+				now = System.currentTimeMillis();
+			}
+			//ÿδʱȴ,ֻֻʱ
+			CompletableFuture<Void> pending = clearing;
+			if (pending != null) {
+				pending.join();
+			}
+			int spare = 3 - current.region - gens.previous.region;
+			Generation next = new Generation(spare, regions[spare], now, 0);
+			header.putLong(CREATED_OFFSET + spare * 8, now);
+			Generations rotated;
+			if (window > 0 && age >= window * 2) {
+				//ѹ,һҲ
+				clear(current.map);
+				rotated = new Generations(next, new Generation(current.region, current.map, now, 0));
+			} else {
+				rotated = new Generations(next, current);
+			}
+			header.putInt(CURRENT_OFFSET, rotated.current.region);
+			header.putInt(PREVIOUS_OFFSET, rotated.previous.region);
+			generations = rotated;
+			//ľһں̨Ϊ´ֻıÿ
+			clearing = clearAsync(gens.previous.map);
+		} finally {
+			rotating.set(0);
+		}
+	}
+
+	private static CompletableFuture<Void> clearAsync(MappedByteBuffer map) {
+		return CompletableFuture.runAsync(new Runnable() {
+			public void run() {
+				clear(map);
+			}
+		}, clear_executor);
+	}
+
+	private static void clear(MappedByteBuffer map) {
+		for (int i = 0; i < map.capacity(); i += 8) {
+			map.putLong(i, 0);
+		}
+	}
+
+	/**
+	 * дļر
+	 */
+	@Override
+	public void close() throws IOException {
+		CompletableFuture<Void> pending = clearing;
+		if (pending != null) {
+			pending.join();
+		}
+		header.force();
+		for (MappedByteBuffer region : regions) {
+			region.force();
+		}
+		channel.close();
+		file.close();
+	}
+}
@@ -73,7 +73,7 @@ public class SocketAddressPacker {
 	/**
 	 * ȡַб
 	 * @param in
-	 * @param limit ַ
+	 * @param limit ַ,ĵַ
 	 * @return
 	 * @throws IOException
 	 */
@@ -83,28 +83,29 @@ public class SocketAddressPacker {
 		if (sizeReceived > 0) {
 			// ȡʶλ
 			byte[] flagBytes = new byte[(int) Math.ceil((float)sizeReceived / 8)];
-			in.read(flagBytes);
+			in.readFully(flagBytes);
 
 			// ȡڵб
 			byte[] ipv4 = new byte[IPv4Size];
 			byte[] ipv6 = new byte[IPv6Size];
-			InetAddress addr;
+			byte[] ip;
 			list = new HashSet<InetSocketAddress>();
 			for (int i = 0; i < sizeReceived; i++) {
-				if (limit > 0 && i >= limit) {
-					break;
-				}
-
-				if (((flagBytes[i / 8] << (i % 8)) & 0xff) == 0x80) {
+				if ((flagBytes[i / 8] & (0x80 >>> (i % 8))) != 0) {
 					// IP v6
-					in.read(ipv6);
-					addr = InetAddress.getByAddress(ipv6);
+					ip = ipv6;
 				} else {
 					// IP v4
-					in.read(ipv4);
-					addr = InetAddress.getByAddress(ipv4);
+					ip = ipv4;
+				}
+				in.readFully(ip);
+				int port = in.readUnsignedShort();
+
+				//Ƶĵַ,Աȡбֶ֮
+				if (limit > 0 && i >= limit) {
+					continue;
 				}
-				list.add(new InetSocketAddress(addr, in.readUnsignedShort()));
+				list.add(new InetSocketAddress(InetAddress.getByAddress(ip), port));
 			}
 		} else {
 			list = null;
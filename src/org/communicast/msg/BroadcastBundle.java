@@ -0,0 +1,115 @@
+package org.communicast.msg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.communicast.exception.UnrecognizedMessage;
+import org.communicast.net.Responser;
+
+/**
+ * 㲥,㲥Ϣһι֤
+ * Ϊһȥغת,յνڸϢ,Ϣforward()ת
+ * ʽ: Ϣ(2)+Ϣ(4)+Ϣ
+ *
+ */
+public class BroadcastBundle implements Message {
+	private final ByteArrayOutputStream entries;//ѱİϢ
+	private final List<Message> messages;
+	private int unrecognized;//޷ʶϢ
+
+	public BroadcastBundle() {
+		entries = new ByteArrayOutputStream();
+		messages = new ArrayList<Message>();
+	}
+
+	@Override
+	public int getCode() {
+		return Registry.BUNDLE_CODE;
+	}
+
+	/**
+	 * һϢ
+	 * @param message
+	 * @throws IOException
+	 */
+	public void add(Message message) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		message.output(new DataOutputStream(body));
+		DataOutputStream out = new DataOutputStream(entries);
+		out.writeShort(message.getCode());
+		out.writeInt(body.size());
+		body.writeTo(out);
+		messages.add(message);
+	}
+
+	/**
+	 * Ϣ
+	 * @return
+	 */
+	public List<Message> getMessages() {
+		return Collections.unmodifiableList(messages);
+	}
+
+	/**
+	 * ѱֽ
+	 * @return
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * ʱ޷ʶϢ
+	 * @return
+	 */
+	public int getUnrecognized() {
+		return unrecognized;
+	}
+
+	@Override
+	public void onReceive(Responser respon) {
+		for (Message message : messages) {
+			try {
+				message.onReceive(respon);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public void output(DataOutputStream out) throws IOException {
+		entries.writeTo(out);
+	}
+
+	@Override
+	public void input(DataInputStream in, int len) throws IOException {
+		while (len > 0) {
+			int code = in.readUnsignedShort();
+			int length = in.readInt();
+			len -= 6;
+			if (length < 0 || length > len) {
+				throw new IOException("Invalid bundle entry length " + length);
+			}
+			byte[] body = new byte[length];
+			in.readFully(body);
+			len -= length;
+
+			Message message;
+			try {
+				message = Registry.newMessageInstance(code);
+			} catch (UnrecognizedMessage | InstantiationException | IllegalAccessException e) {
+				unrecognized++;
+				continue;
+			}
+			message.input(new DataInputStream(new ByteArrayInputStream(body)), length);
+			messages.add(message);
+		}
+	}
+}
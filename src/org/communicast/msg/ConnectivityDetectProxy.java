@@ -7,6 +7,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.communicast.collection.SocketAddressPacker;
 import org.communicast.exception.HugeMessageException;
@@ -49,14 +50,22 @@ public class ConnectivityDetectProxy implements Message {
 		Node local = respon.getLocalNode();
 		switch (status) {
 		case New:
-			//
+			//,첽̽ɺظ
 			//System.out.print("յڵ");
-			this.status = local.detect(addr, port) ? RequestStatus.Success:RequestStatus.Fail;
-			try {
-				respon.reply(this);
-			} catch (HugeMessageException e) {
-			}
-			break;
+			local.detectAsync(addr, port).thenAccept(new Consumer<Boolean>() {
+				@Override
+				public void accept(Boolean reachable) {
+					status = reachable ? RequestStatus.Success:RequestStatus.Fail;
+					try {
+						respon.reply(ConnectivityDetectProxy.this);
+					} catch (HugeMessageException e) {
+					}
+					if (reachable) {
+						addSuccess(respon);
+					}
+				}
+			});
+			return;
 		case Fail:
 			//System.out.print("յڵʧӦ");
 			//ʧ
@@ -68,11 +77,19 @@ public class ConnectivityDetectProxy implements Message {
 		}
 		//System.out.println(",ip:"+addr.getHostAddress() + " ˿:" + port + ",Զ˿:"+respon.getPort());
 		if (this.status == RequestStatus.Success) {
-			Set<InetSocketAddress> singleSet = new HashSet<InetSocketAddress>();
-			singleSet.add(new InetSocketAddress(addr, port));
-			local.addAndSharePublicNodes(singleSet, respon.getSock(), true);
+			addSuccess(respon);
 		}
 	}
+	
+	/**
+	 * ӲɹĽڵ
+	 * @param respon
+	 */
+	private void addSuccess(Responser respon) {
+		Set<InetSocketAddress> singleSet = new HashSet<InetSocketAddress>();
+		singleSet.add(new InetSocketAddress(addr, port));
+		respon.getLocalNode().addAndSharePublicNodes(singleSet, respon.getSock(), true);
+	}
 
 	@Override
 	public void output(DataOutputStream out) throws IOException {
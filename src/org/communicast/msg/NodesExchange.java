@@ -20,6 +20,10 @@ import org.communicast.net.Responser;
  */
 public class NodesExchange implements Message {
 	private int listen_port; //ؼ˿,0Ϊδ
+	private int difficulity;//ͷǰĹ㲥Ѷ,0Ϊδ
+	
+	//ַб֮չֶα,ɰ汾бֽ֮
+	private static final int EXTENSION_DIFFICULITY = 1;
 
 	private Set<InetSocketAddress> list;
 	public int max_req;
@@ -35,6 +39,7 @@ public class NodesExchange implements Message {
 		max_req = Math.max(localNode.getPublicNodesList().size(),
 				Node.public_nodes_list_size - localNode.getPublicNodesList().size());
 		list = localNode.getPublicNodes(num_to_send);
+		difficulity = localNode.getBroadcastDifficulity();
 	}
 
 	@Override
@@ -45,6 +50,10 @@ public class NodesExchange implements Message {
 	@Override
 	public void onReceive(Responser respon) {
 		Node localNode = respon.getLocalNode();
+		
+		if (difficulity > 0) {
+			localNode.updatePeerDifficulity(respon.getSock(), difficulity);
+		}
 			
 		if (max_req > 0) {
 			// ڵб
@@ -99,6 +108,10 @@ public class NodesExchange implements Message {
 
 		//дַб
 		SocketAddressPacker.flush(list, out);
+		
+		//дչǺ8λ㲥Ѷ
+		out.writeByte(EXTENSION_DIFFICULITY);
+		out.writeByte(difficulity);
 	}
 
 	@Override
@@ -109,8 +122,13 @@ public class NodesExchange implements Message {
 		//ȡ˿
 		listen_port = in.readUnsignedShort();
 		
-		//ȡַб
-		SocketAddressPacker.read(in, Node.public_nodes_list_size);
+		//ȡַб,ƵĵַҲ
+		list = SocketAddressPacker.read(in, Node.public_nodes_list_size);
+		
+		//ȡ㲥Ѷ,ɰ汾б֮ûֶ
+		if (in.available() >= 2 && in.readUnsignedByte() == EXTENSION_DIFFICULITY) {
+			difficulity = in.readUnsignedByte();
+		}
 	}
 
 }
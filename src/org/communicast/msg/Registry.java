@@ -6,6 +6,8 @@ import org.communicast.exception.DuplicateMessageNumber;
 import org.communicast.exception.UnrecognizedMessage;
 
 public class Registry {
+	public static final int BUNDLE_CODE = 0xFFFF;//㲥
+	
 	private static final HashMap<Integer, Class<? extends Message>> message_map;
 	
 	static {
@@ -18,6 +20,9 @@ public class Registry {
 	 * @throws DuplicateMessageNumber 
 	 */
 	public static void registerMessage(Message message) throws DuplicateMessageNumber {
+		if ((message.getCode() & 0xffff) == BUNDLE_CODE) {
+			throw new DuplicateMessageNumber(message.getCode());
+		}
 		if (message_map.putIfAbsent(message.getCode(), message.getClass()) != null) {
 			throw new DuplicateMessageNumber(message.getCode());
 		}
@@ -0,0 +1,69 @@
+package org.communicast.net;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * ˽Ĺ㲥֤
+ * 繲ԿϢͷϢHMAC,ȡǰ16ֽڷnonceλ,湤֤
+ *
+ */
+class BroadcastAuthenticator {
+	static final int MAC_LENGTH = Frame.MAX_NONCE_SIZE;//ȡ֤볤
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private final SecretKeySpec key;
+	private final ThreadLocal<Mac> macs;//Mac̰߳ȫ,ÿ߳һ
+
+	BroadcastAuthenticator(byte[] secret) throws NoSuchAlgorithmException, InvalidKeyException {
+		key = new SecretKeySpec(secret, ALGORITHM);
+		Mac.getInstance(ALGORITHM).init(key);//ǰԿ
+		macs = new ThreadLocal<Mac>() {
+			protected Mac initialValue() {
+				try {
+					Mac mac = Mac.getInstance(ALGORITHM);
+					mac.init(key);
+					return mac;
+				} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * ֤
+	 * @param data Ĺ㲥Ϣ,ϢͷϢ
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	byte[] sign(byte[] data, int offset, int length) {
+		Mac mac = macs.get();
+		mac.update(data, offset, length);
+		return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+	}
+
+	/**
+	 * ֤㲥֤
+	 * @param frame
+	 * @return ֤֤ͨ,ȥرʶ,򷵻null
+	 */
+	byte[] verify(Frame frame) {
+		if (frame.nonce_size != MAC_LENGTH) {
+			return null;
+		}
+		byte[] expected = sign(frame.data, frame.offset, frame.header_length + frame.length);
+		//ֽڱȽȫ,ʱ벻һµλ޹
+		int diff = 0;
+		int nonce_offset = frame.nonceOffset();
+		for (int i = 0; i < MAC_LENGTH; i++) {
+			diff |= expected[i] ^ frame.data[nonce_offset + i];
+		}
+		return diff == 0 ? expected : null;
+	}
+}
@@ -0,0 +1,117 @@
+package org.communicast.net;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.communicast.msg.BroadcastBundle;
+import org.communicast.msg.Message;
+import org.communicast.util.WorkProofScheduler.Job;
+
+/**
+ * 㲥ϲ
+ * ռύĹ㲥Ϣ,ڽﵽֽԤʱһ㲥,һι֤
+ * ռɽڵĶʱʱ,ڵرʱȡռеĹ㲥
+ *
+ */
+class BroadcastBundler {
+	private final Node node;
+	private final ScheduledExecutorService timer;//ռڶʱ
+	private BroadcastBundle bundle;//ռеĹ㲥
+	private CompletableFuture<Job> pending;//ռеĹ㲥ʼʱ
+	private int min_connected;//ռеĹ㲥ʹĽڵ,ȡϢֵ
+
+	BroadcastBundler(Node node, ScheduledExecutorService timer) {
+		this.node = node;
+		this.timer = timer;
+	}
+
+	/**
+	 * Ϣ
+	 * @param message
+	 * @param min_connected ʹĽڵ
+	 * @return ڹ㲥ʼʱõ
+	 * @throws Exception
+	 */
+	CompletableFuture<Job> add(Message message, int min_connected) throws Exception {
+		BroadcastBundle full = null;
+		CompletableFuture<Job> future;
+		CompletableFuture<Job> full_future = null;
+		int full_min_connected = 0;
+		synchronized (this) {
+			if (bundle == null) {
+				BroadcastBundle current = new BroadcastBundle();
+				//ȰŴڽ,ʱѹرʱռеĹ㲥
+				timer.schedule(new Runnable() {
+					public void run() {
+						CompletableFuture<Job> current_future;
+						int current_min_connected;
+						synchronized (BroadcastBundler.this) {
+							if (bundle != current) {
+								return;//ֽԤǰ
+							}
+							current_min_connected = BroadcastBundler.this.min_connected;
+							current_future = take();
+						}
+						send(current, current_future, current_min_connected);
+					}
+				}, Node.broadcast_bundle_window, TimeUnit.MILLISECONDS);
+				bundle = current;
+				pending = new CompletableFuture<Job>();
+				this.min_connected = 0;
+			}
+			bundle.add(message);
+			this.min_connected = Math.max(this.min_connected, min_connected);
+			future = pending;
+			if (bundle.size() >= Node.broadcast_bundle_bytes) {
+				full = bundle;
+				full_min_connected = this.min_connected;
+				full_future = take();
+			}
+		}
+		if (full != null) {
+			send(full, full_future, full_min_connected);
+		}
+		return future;
+	}
+
+	/**
+	 * ȡռеĹ㲥,ڵرʱ
+	 */
+	void cancel() {
+		CompletableFuture<Job> future;
+		synchronized (this) {
+			if (bundle == null) {
+				return;
+			}
+			future = take();
+		}
+		future.completeExceptionally(new CancellationException("Node shut down"));
+	}
+
+	/**
+	 * ȡռеĹ㲥,ʱ
+	 * @return
+	 */
+	private CompletableFuture<Job> take() {
+		CompletableFuture<Job> future = pending;
+		bundle = null;
+		pending = null;
+		return future;
+	}
+
+	/**
+	 * ύ㲥Ĺ֤
+	 * @param bundle
+	 * @param future
+	 * @param min_connected ʹĽڵ
+	 */
+	private void send(BroadcastBundle bundle, CompletableFuture<Job> future, int min_connected) {
+		try {
+			future.complete(node.broadcast(bundle, min_connected));
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.communicast.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.communicast.msg.Message;
+import org.communicast.util.PooledBuffer;
+
+/**
+ * 㲥
+ * ֤ɵʹڵĹ㲥ڴ˵ȴ,½ڵʱ,¼㹤
+ * ʹ㹻ڵ㡢ڻѶѲʱƳ
+ * ڵĹ㲥ȷڳбʱ,벹,ÿڵֻʹһ
+ *
+ */
+class BroadcastOutbox {
+	private final LinkedList<Entry> entries;//˳
+
+	/**
+	 * 㲥
+	 */
+	static class Entry {
+		final PooledBuffer frame;//֤Ϣ,Ƴʱͷ
+		final Message message;
+		final int min_connected;//ʹĽڵ
+		final int difficulity;//֤Ѷ,֤㲥Ϊ0
+		final long expire;//ʱ,
+		final Set<NodeSocket> delivered;//ʹĽڵ
+		int sent_to;//ʹڵ
+
+		Entry(PooledBuffer frame, Message message, int min_connected, int difficulity) {
+			this.frame = frame;
+			this.message = message;
+			this.min_connected = min_connected;
+			this.difficulity = difficulity;
+			delivered = Collections.newSetFromMap(new IdentityHashMap<NodeSocket, Boolean>());
+			expire = System.currentTimeMillis() + Node.broadcast_outbox_ttl * 1000L;
+		}
+
+		/**
+		 * ͸ڵ,ʹĽڵ,д㲥ʱ
+		 * @param sock
+		 * @return ʹﷵtrue,ʹͶfalse
+		 * @throws IOException ѹر
+		 */
+		boolean sendTo(NodeSocket sock) throws IOException {
+			if (delivered.contains(sock) || !sock.send(frame.duplicate(), false)) {
+				return false;
+			}
+			delivered.add(sock);
+			sent_to++;
+			return true;
+		}
+
+		boolean isDone() {
+			return sent_to >= min_connected;
+		}
+	}
+
+	BroadcastOutbox() {
+		entries = new LinkedList<Entry>();
+	}
+
+	/**
+	 * 㲥,ʱƳĹ㲥
+	 * @param entry
+	 * @return ƳĹ㲥
+	 */
+	synchronized List<Entry> add(Entry entry) {
+		List<Entry> removed = new ArrayList<Entry>();
+		entries.add(entry);
+		while (entries.size() > Math.max(0, Node.broadcast_outbox_size)) {
+			removed.add(entries.removeFirst());
+		}
+		return removed;
+	}
+
+	/**
+	 * ʹڵ,㹻Ƴ
+	 * @param entry
+	 * @return ƳĹ㲥
+	 */
+	synchronized List<Entry> settle(Entry entry) {
+		List<Entry> removed = new ArrayList<Entry>();
+		if (entry.isDone() && entries.remove(entry)) {
+			removed.add(entry);
+		}
+		return removed;
+	}
+
+	/**
+	 * ӵĽڵ㲹
+	 * @param sock
+	 * @param required ǰܵѶ
+	 * @return ʹ㹻ڵʧЧƳĹ㲥
+	 */
+	synchronized List<Entry> deliver(NodeSocket sock, int required) {
+		List<Entry> removed = expire(System.currentTimeMillis(), required);
+		Iterator<Entry> it = entries.iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			try {
+				if (!entry.sendTo(sock)) {
+					//ʹͶ,ȴһڵ
+					continue;
+				}
+			} catch (IOException e) {
+				break;
+			}
+			if (entry.isDone()) {
+				it.remove();
+				removed.add(entry);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * ƳںѶȲĹ㲥
+	 * @param now ǰʱ,
+	 * @param required ǰܵѶ
+	 * @return ƳĹ㲥
+	 */
+	synchronized List<Entry> expire(long now, int required) {
+		List<Entry> removed = new ArrayList<Entry>();
+		Iterator<Entry> it = entries.iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.expire <= now || entry.difficulity > 0 && entry.difficulity < required) {
+				it.remove();
+				removed.add(entry);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * 
+	 * @return ƳĹ㲥
+	 */
+	synchronized List<Entry> clear() {
+		List<Entry> removed = new ArrayList<Entry>(entries);
+		entries.clear();
+		return removed;
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,105 @@
+package org.communicast.net;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ĺ㲥Ѷȵ
+ * ͳյı㲥ٶ,ĿʱѶȼһ,һʱһ,
+ * Ѷȱ仯Ŀͬʱ¾Ѷнϵ,ܾ;еϢ
+ * ھӹѶȵλʱ,ÿһ,ھӹҲ̧ȫѶ
+ * ھѶȵڲе,ڵ
+ *
+ */
+class DifficulityController {
+	private final AtomicInteger received;//յı㲥
+	private volatile int current;//ǰѶ
+	private volatile int previous;//仯ǰѶ
+	private volatile long grace_until;//ڽʱ,
+	private long period_start;//ڿʼʱ,
+	private boolean followed;//Ѹھӵ
+
+	DifficulityController(int initial) {
+		received = new AtomicInteger();
+		current = previous = clamp(initial);
+		period_start = System.currentTimeMillis();
+	}
+
+	/**
+	 * ¼һµı㲥
+	 */
+	void record() {
+		received.incrementAndGet();
+	}
+
+	/**
+	 * ڽʱ㲥ٶȵѶ,ÿ
+	 * @param now ǰʱ,
+	 * @return Ѷȱ仯true
+	 */
+	synchronized boolean adjust(long now) {
+		long elapsed = now - period_start;
+		if (elapsed < Node.difficulity_adjust_interval * 1000L) {
+			return false;
+		}
+		double rate = received.getAndSet(0) * 1000.0 / elapsed;
+		period_start = now;
+		if (followed) {
+			//Ѿ,ٵĵ
+			followed = false;
+			return false;
+		}
+		int next = current;
+		if (rate > Node.broadcast_target_rate * 2) {
+			next++;
+		} else if (rate < Node.broadcast_target_rate / 2.0) {
+			next--;
+		}
+		return change(next, now);
+	}
+
+	/**
+	 * ھӹѶȵλʱһ,Ѹ
+	 * @param median ھӹѶȵλ
+	 * @param now ǰʱ,
+	 * @return Ѷȱ仯true
+	 */
+	synchronized boolean follow(int median, long now) {
+		if (followed || median <= current) {
+			return false;
+		}
+		followed = true;
+		return change(current + 1, now);
+	}
+
+	private boolean change(int next, long now) {
+		next = clamp(next);
+		if (next == current) {
+			return false;
+		}
+		previous = current;
+		current = next;
+		grace_until = now + Node.difficulity_grace_period * 1000L;
+		return true;
+	}
+
+	private static int clamp(int difficulity) {
+		return Math.max(Node.broadcast_difficulity_min, Math.min(Node.broadcast_difficulity_max, difficulity));
+	}
+
+	/**
+	 * ǰѶ,ͺ͹ʹ
+	 * @return
+	 */
+	int getCurrent() {
+		return current;
+	}
+
+	/**
+	 * ʱҪѶ,ȡ¾Ѷнϵ
+	 * @param now ǰʱ,
+	 * @return
+	 */
+	int getRequired(long now) {
+		return now < grace_until ? Math.min(current, previous) : current;
+	}
+}
@@ -0,0 +1,82 @@
+package org.communicast.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * ѽϢ֡,ÿӸһʵ
+ * ϢͷϢnonceָеԭʼ,ֻڴڼЧ
+ *
+ */
+final class Frame {
+	static final int MAX_HEADER_LENGTH = 27;//Ϣͷ󳤶:1+id16+Ϣ2+4+к4
+	static final int MAX_NONCE_SIZE = 16;//nonce󳤶
+
+	int type;// Ϣ:0/̽ڵ1/ڵб2/ܾ3/ͨ5/½ڵ㹲6/ԶϢ7
+	boolean broadcast;//Ƿ㲥
+	final byte[] netID = new byte[16];//id
+	int code;//Ϣ
+	int length;//Ϣ
+	int header_length;//Ϣͷ
+	int nonce_size;//nonce
+	byte[] data;//ڻ
+	int offset;//Ϣڻеʼλ
+	final MessageDigest md5_digest;
+	private final BodyStream body_stream = new BodyStream();
+	private final DataInputStream body_input = new DataInputStream(body_stream);//Ϣ,ÿϢ
+
+	Frame() throws NoSuchAlgorithmException {
+		md5_digest = MessageDigest.getInstance("MD5");
+	}
+	
+	/**
+	 * Ϣʼλ
+	 * @return
+	 */
+	int bodyOffset() {
+		return offset + header_length;
+	}
+	
+	/**
+	 * Ϣ,ָеϢ,ֻڴڼЧ
+	 * @return
+	 */
+	DataInputStream body() {
+		body_stream.point(data, bodyOffset(), length);
+		return body_input;
+	}
+	
+	/**
+	 * nonceʼλ,nonceֽ
+	 * @return
+	 */
+	int nonceOffset() {
+		return offset + header_length + length + 1;
+	}
+	
+	/**
+	 * Ϣ·ϵĳ
+	 * @return
+	 */
+	int wireLength() {
+		return header_length + length + (broadcast ? 1 + nonce_size : 0);
+	}
+	
+	/**
+	 * ָ򻺳Ƭεֽ
+	 */
+	private static class BodyStream extends ByteArrayInputStream {
+		BodyStream() {
+			super(new byte[0]);
+		}
+		
+		void point(byte[] data, int offset, int length) {
+			buf = data;
+			pos = offset;
+			mark = offset;
+			count = offset + length;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package org.communicast.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * ʽϢ,NIOģʽ
+ * ÿһ,͵ؽϢͷ,ϢԻеƬν
+ *
+ */
+class FrameDecoder {
+	static final int FRAME_READY = 0;//ѽϢ
+	static final int FRAME_PARTIAL = 1;//ݲ
+	static final int FRAME_INVALID = 2;//ЧϢ
+
+	private static final int BUFFER_SIZE = 32 * 1024;//Ĭ϶С
+	private static final int MIN_READ_SPACE = 4096;//һζȡСпռ
+
+	private final Node node;
+	private final NodeSocket sock;
+	private final Frame frame;
+	private ByteBuffer in;//,positionΪδ,limitΪѶյ
+	private int frame_size_needed;//δϢĻС
+
+	FrameDecoder(Node node, NodeSocket sock) throws NoSuchAlgorithmException {
+		this.node = node;
+		this.sock = sock;
+		frame = new Frame();
+		in = ByteBuffer.allocate(BUFFER_SIZE);
+		in.limit(0);
+	}
+
+	Frame getFrame() {
+		return frame;
+	}
+
+	/**
+	 * ȡһ
+	 * @param stream
+	 * @return ȡֽ,-1
+	 * @throws IOException
+	 */
+	int fill(InputStream stream) throws IOException {
+		prepare();
+		int n = stream.read(in.array(), in.limit(), in.capacity() - in.limit());
+		if (n > 0) {
+			in.limit(in.limit() + n);
+		}
+		return n;
+	}
+
+	/**
+	 * ͨȡһ
+	 * @param channel
+	 * @return ȡֽ,-1
+	 * @throws IOException
+	 */
+	int fill(ReadableByteChannel channel) throws IOException {
+		prepare();
+		int position = in.position();
+		in.position(in.limit());
+		in.limit(in.capacity());
+		int n;
+		try {
+			n = channel.read(in);
+		} finally {
+			in.limit(in.position());
+			in.position(position);
+		}
+		return n;
+	}
+
+	/**
+	 * ֤β㹻ռɴȡ
+	 */
+	private void prepare() {
+		int remaining = in.remaining();
+		if (remaining == 0 && in.capacity() > BUFFER_SIZE && frame_size_needed <= BUFFER_SIZE) {
+			//Ϣ,ָĬϴС
+			in = ByteBuffer.allocate(BUFFER_SIZE);
+			in.limit(0);
+			return;
+		}
+
+		int needed = Math.max(frame_size_needed, remaining + MIN_READ_SPACE);
+		if (in.capacity() - in.position() >= needed && in.capacity() - in.limit() >= MIN_READ_SPACE) {
+			return;
+		}
+		if (needed > in.capacity()) {
+			//Ϣ
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, (int) Math.min(Integer.MAX_VALUE - 8, in.capacity() * 2L)));
+			larger.put(in);
+			larger.flip();
+			in = larger;
+		} else {
+			//ƶδݵ忪ͷ
+			in.compact();
+			in.flip();
+		}
+	}
+
+	/**
+	 * ȡָȵ
+	 * @param n
+	 * @return ݲ㷵null
+	 */
+	byte[] read(int n) {
+		if (in.remaining() < n) {
+			return null;
+		}
+		byte[] buffer = new byte[n];
+		in.get(buffer);
+		return buffer;
+	}
+
+	/**
+	 * ӶһϢ,ݲʱĻ
+	 * @return
+	 */
+	int decode() {
+		int start = in.position();
+		int status = decodeFrame();
+		if (status == FRAME_PARTIAL) {
+			in.position(start);
+		} else {
+			frame_size_needed = 0;
+		}
+		return status;
+	}
+
+	private int decodeFrame() {
+		int start = in.position();
+		if (in.remaining() < 1) {
+			return FRAME_PARTIAL;
+		}
+
+		//Ϣ,Ƿ㲥
+		frame.header_length = 0;
+		frame.type = in.get() & 0xff;
+		frame.broadcast = frame.type >= 0x80;
+		frame.type &= ~0x80;
+		frame.header_length++;
+
+		if (frame.type == 7) {
+			if (!sock.added) {
+				//δӲԶϢ
+				node.logInfo("ܾδӽڵԶϢ", sock);
+				return FRAME_INVALID;
+			}
+		} else if (frame.type > 7) {
+			node.logInfo("ЧϢ", sock);
+			return FRAME_INVALID;
+		}
+
+		if (frame.type == 7) {
+			if (in.remaining() < 16 + 2) {
+				return FRAME_PARTIAL;
+			}
+			in.get(frame.netID);//id
+			if (Arrays.equals(Node.emptyNetID, frame.netID)) {
+				//粻ԶϢ
+				node.logInfo("Ч", sock);
+				return FRAME_INVALID;
+			}
+			frame.code = in.getShort() & 0xffff;//Ϣ
+			frame.header_length += 16 + 2;
+		}
+
+		if (in.remaining() < 4) {
+			return FRAME_PARTIAL;
+		}
+		frame.length = in.getInt();//Ϣ
+		frame.header_length += 4;
+		if (frame.length < 0 || frame.length > node.MAX_MESSAGE_LENGTH) {
+			node.logInfo("ϢЧ:" + frame.length, sock);
+			return FRAME_INVALID;
+		}
+
+		if (frame.broadcast) {
+			if (in.remaining() < 4) {
+				return FRAME_PARTIAL;
+			}
+			in.getInt();
+			frame.header_length += 4;
+		}
+
+		frame_size_needed = frame.header_length + frame.length + (frame.broadcast ? 1 + Frame.MAX_NONCE_SIZE : 0);
+
+		//Ϣ弰NonceǷ
+		frame.nonce_size = 0;
+		if (frame.broadcast) {
+			if (in.remaining() < frame.length + 1) {
+				return FRAME_PARTIAL;
+			}
+			frame.nonce_size = in.get(in.position() + frame.length) & 0xff;
+			if (frame.nonce_size > Frame.MAX_NONCE_SIZE) {
+				return FRAME_INVALID;
+			}
+			if (in.remaining() < frame.length + 1 + frame.nonce_size) {
+				return FRAME_PARTIAL;
+			}
+		} else if (in.remaining() < frame.length) {
+			return FRAME_PARTIAL;
+		}
+
+		frame.data = in.array();
+		frame.offset = in.arrayOffset() + start;
+		in.position(start + frame.wireLength());
+		return FRAME_READY;
+	}
+}
@@ -0,0 +1,40 @@
+package org.communicast.net;
+
+import java.io.ByteArrayOutputStream;
+
+import org.communicast.util.BufferPool;
+import org.communicast.util.PooledBuffer;
+
+/**
+ * Ϣõ,ϢͷϢдͬһ,ֶдϢ
+ *
+ */
+class FrameOutputStream extends ByteArrayOutputStream {
+	FrameOutputStream() {
+		super(256);
+	}
+
+	/**
+	 * һ
+	 * @param position
+	 * @param value
+	 */
+	void setInt(int position, int value) {
+		buf[position] = (byte) (value >>> 24);
+		buf[position + 1] = (byte) (value >>> 16);
+		buf[position + 2] = (byte) (value >>> 8);
+		buf[position + 3] = (byte) value;
+	}
+
+	/**
+	 * ƵطĻ
+	 * @param pool
+	 * @return
+	 */
+	PooledBuffer toPooled(BufferPool pool) {
+		PooledBuffer pooled = pool.allocate(count);
+		pooled.buffer().put(buf, 0, count);
+		pooled.buffer().flip();
+		return pooled;
+	}
+}
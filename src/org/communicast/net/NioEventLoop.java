@@ -0,0 +1,108 @@
+package org.communicast.net;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NIO¼ѭ߳,һSelectorӵĶд
+ *
+ */
+class NioEventLoop extends Thread {
+	private static final int SELECT_TIMEOUT = 500;//ѡʱ,,ͬʱǳʱ
+	private final Selector selector;
+	private final ConcurrentLinkedQueue<Runnable> tasks;//¼ѭִе
+
+	NioEventLoop(int index) throws IOException {
+		super("NIO_EVENT_LOOP_" + index);
+		selector = Selector.open();
+		tasks = new ConcurrentLinkedQueue<Runnable>();
+		setDaemon(true);
+	}
+
+	/**
+	 * ¼ѭִ߳
+	 * @param task
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Ƿڵǰ¼ѭ߳
+	 * @return
+	 */
+	boolean inLoop() {
+		return Thread.currentThread() == this;
+	}
+
+	/**
+	 * ע
+	 * @param session
+	 */
+	void register(NioSession session) {
+		execute(new Runnable() {
+			public void run() {
+				session.register(selector);
+			}
+		});
+	}
+
+	/**
+	 * رָڵȫ
+	 * @param node
+	 */
+	void closeSessions(Node node) {
+		execute(new Runnable() {
+			public void run() {
+				for (SelectionKey key : selector.keys()) {
+					NioSession session = (NioSession) key.attachment();
+					if (session != null && session.getNode() == node) {
+						session.close();
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				selector.select(SELECT_TIMEOUT);
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				NioSession session = (NioSession) key.attachment();
+				if (key.isValid() && key.isReadable()) {
+					session.onReadable();
+				}
+				if (key.isValid() && key.isWritable()) {
+					session.onWritable();
+				}
+			}
+
+			//δӵĳʱ
+			long now = System.currentTimeMillis();
+			for (SelectionKey key : selector.keys()) {
+				if (key.isValid()) {
+					((NioSession) key.attachment()).checkTimeout(now);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package org.communicast.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.communicast.msg.NodesExchange;
+import org.communicast.util.PooledBuffer;
+
+/**
+ * NIOģʽµ,¼ѭ̸߳ȡд
+ *
+ */
+class NioSession {
+	private static final int GATHER_SIZE = 64;//һξۼдϢ
+
+	private final Node node;
+	private final NodeSocket sock;
+	private final SocketChannel channel;
+	private final NioEventLoop loop;
+	private final FrameDecoder decoder;
+	private final Outbound outbound;//Ͷ
+	private final Runnable flush_task;
+	private final ByteBuffer[] gather;//дϢ
+	private final PooledBuffer[] gather_owners;//дϢ,дͷ
+	private int gather_count;
+	private SelectionKey key;
+	private boolean handshaked;//Ƿ֤Эͷ
+	private boolean stopped;//ֹͣȡ
+	private long last_read;//ȡʱ,
+
+	NioSession(Node node, NodeSocket sock, NioEventLoop loop) throws NoSuchAlgorithmException {
+		this.node = node;
+		this.sock = sock;
+		this.loop = loop;
+		channel = sock.getChannel();
+		decoder = new FrameDecoder(node, sock);
+		outbound = new Outbound();
+		gather = new ByteBuffer[GATHER_SIZE];
+		gather_owners = new PooledBuffer[GATHER_SIZE];
+		flush_task = new Runnable() {
+			public void run() {
+				flush();
+			}
+		};
+	}
+
+	Node getNode() {
+		return node;
+	}
+	
+	OutboundQueue getOutbound() {
+		return outbound;
+	}
+	
+	/**
+	 * ¼ѭдķͶ
+	 */
+	private class Outbound extends OutboundQueue {
+		Outbound() {
+			super(NioSession.this.node, NioSession.this.sock, Node.outbound_queue_size);
+		}
+
+		@Override
+		protected void schedule() {
+			if (loop.inLoop()) {
+				flush();
+			} else {
+				loop.execute(flush_task);
+			}
+		}
+		
+		/**
+		 * ͬдϢһͷ,ֻ¼ѭ߳з
+		 */
+		@Override
+		void discard() {
+			super.discard();
+			if (loop.inLoop()) {
+				releaseGather();
+			} else {
+				loop.execute(new Runnable() {
+					public void run() {
+						releaseGather();
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * עᵽѡ,¼ѭ߳е
+	 * @param selector
+	 */
+	void register(Selector selector) {
+		try {
+			channel.configureBlocking(false);
+			key = channel.register(selector, SelectionKey.OP_READ, this);
+			last_read = System.currentTimeMillis();
+			// Эͷ
+			sock.send(PooledBuffer.wrap(Node.HANDSHAKE_FLAG), true);
+		} catch (IOException e) {
+			remove();
+		}
+	}
+
+	/**
+	 * де,дȴд¼,¼ѭ߳е
+	 * Ϣͨһξۼд,Ĺ㲥踴
+	 */
+	private void flush() {
+		if (key == null || !key.isValid()) {
+			//δעʧЧ,дȨ;ʧЧӲд,رʱͷŶкдϢ
+			outbound.abandon();
+			if (key != null) {
+				remove();
+			}
+			return;
+		}
+		try {
+			do {
+				while (true) {
+					PooledBuffer buffer;
+					while (gather_count < gather.length && (buffer = outbound.poll()) != null) {
+						gather_owners[gather_count] = buffer;
+						gather[gather_count++] = buffer.buffer();
+					}
+					if (gather_count == 0) {
+						break;
+					}
+
+					long bytes = channel.write(gather, 0, gather_count);
+
+					//ƳдϢ
+					int written = 0;
+					while (written < gather_count && !gather[written].hasRemaining()) {
+						gather_owners[written].release();
+						written++;
+					}
+					System.arraycopy(gather, written, gather, 0, gather_count - written);
+					System.arraycopy(gather_owners, written, gather_owners, 0, gather_count - written);
+					for (int i = gather_count - written; i < gather_count; i++) {
+						gather[i] = null;
+						gather_owners[i] = null;
+					}
+					gather_count -= written;
+					outbound.written(written, bytes);
+					if (gather_count > 0) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+			} while (outbound.release());
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		} catch (IOException e) {
+			outbound.fail();
+		}
+	}
+	
+	/**
+	 * ͷδдϢ
+	 */
+	private void releaseGather() {
+		for (int i = 0; i < gather_count; i++) {
+			gather_owners[i].release();
+			gather[i] = null;
+			gather_owners[i] = null;
+		}
+		gather_count = 0;
+	}
+
+	void onWritable() {
+		flush();
+	}
+
+	void onReadable() {
+		try {
+			if (decoder.fill(channel) < 0) {
+				remove();
+				return;
+			}
+			last_read = System.currentTimeMillis();
+
+			//֤Эͷ
+			if (!handshaked && !readHandshake()) {
+				return;
+			}
+
+			while (!stopped) {
+				int status = decoder.decode();
+				if (status == FrameDecoder.FRAME_PARTIAL) {
+					break;
+				} else if (status == FrameDecoder.FRAME_INVALID) {
+					remove();
+					return;
+				}
+
+				switch (node.handleFrame(sock, decoder.getFrame())) {
+				case CONTINUE:
+					break;
+				case STOP:
+					stop();
+					break;
+				case CLOSE:
+					remove();
+					return;
+				}
+			}
+		} catch (Exception e) {
+			// Ϣȡ
+			if (node.debug) {
+				e.printStackTrace();
+			}
+			remove();
+		}
+	}
+
+	/**
+	 * ȡ֤Эͷ
+	 * @return ֤ͨtrue
+	 * @throws Exception
+	 */
+	private boolean readHandshake() throws Exception {
+		byte[] buffer = decoder.read(Node.HANDSHAKE_FLAG.length);
+		if (buffer == null) {
+			return false;
+		}
+		if (!Arrays.equals(buffer, Node.HANDSHAKE_FLAG)) {
+			close();
+			node.logInfo("ЧЭͷ" + new String(buffer), sock);
+			return false;
+		}
+		handshaked = true;
+
+		// ͻ˷ڵ㽻
+		if (sock.isClient) {
+			if (!node.sendTo(sock, new NodesExchange(node, 0))) {
+				stop();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * ֹͣȡ,ȴصر
+	 */
+	private void stop() {
+		stopped = true;
+		if (key != null && key.isValid()) {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * δӳʱ
+	 * @param now ǰʱ,
+	 */
+	void checkTimeout(long now) {
+		if (!sock.added && now - last_read > Node.connect_timeout) {
+			remove();
+		}
+	}
+
+	/**
+	 * Ƴڵ
+	 */
+	private void remove() {
+		node.logInfo("ڵ㱻Ƴ", sock);
+		node.delConnected(sock);
+	}
+
+	/**
+	 * ر
+	 */
+	void close() {
+		try {
+			sock.close();
+		} catch (IOException e) {
+		}
+	}
+}
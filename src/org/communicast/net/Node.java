@@ -1,12 +1,14 @@
 package org.communicast.net;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
+
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
@@ -14,31 +16,46 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.communicast.collection.BloomFilter;
+import org.communicast.collection.DuplicateSuppressor;
+import org.communicast.collection.MappedBloomFilter;
 import org.communicast.collection.LimitedRandomSet;
 import org.communicast.exception.AlreadyConnected;
 import org.communicast.exception.ConnectionFull;
 import org.communicast.exception.HugeMessageException;
-import org.communicast.exception.NodesNotEnough;
 import org.communicast.exception.UnrecognizedMessage;
+import org.communicast.msg.BroadcastBundle;
 import org.communicast.msg.ConnectionRefuse;
 import org.communicast.msg.ConnectivityDetectProxy;
 import org.communicast.msg.HeartBeat;
@@ -47,102 +64,16 @@ import org.communicast.msg.NewNodesShare;
 import org.communicast.msg.NodeDetection;
 import org.communicast.msg.NodesExchange;
 import org.communicast.msg.Registry;
+import org.communicast.util.BufferPool;
+import org.communicast.util.PooledBuffer;
+import org.communicast.util.VirtualThreads;
 import org.communicast.util.WorkProof;
-import org.communicast.util.WorkProof.WorkResult;
+import org.communicast.util.WorkProofCalibration;
+import org.communicast.util.WorkProofScheduler;
+import org.communicast.util.WorkProofScheduler.Job;
 
 public class Node {
 	
-	/**
-	 * 
-	 * @author huangkaixuan
-	 */
-	private class ConcurrentWorkCalculator {
-		private ReentrantLock lock;
-		private byte[] source;
-		private final int difficulity;
-		private WorkProof[] workers;
-		private final Message msg;
-		
-		/**
-		 * @param data ԭʼ
-		 * @param difficulity Ѷ
-		 */
-		private ConcurrentWorkCalculator(Message message, byte[] data, int difficulity) {
-			source = data;
-			this.difficulity  = difficulity;
-			msg = message;
-		}
-		
-		private void start() throws Exception {
-			lock = new ReentrantLock();
-			workers = new WorkProof[work_proof_thread_num];
-			byte[] data;
-			for(int i = 0; i < work_proof_thread_num; i++) {
-				if (work_proof_thread_num > 1) {
-					data = Arrays.copyOf(source, source.length + 1);
-					data[source.length] = (byte)i;
-				} else {
-					data = source;
-				}
-				workers[i] = new WorkProof(data, difficulity, "MD5", true);	
-				work_proof_generate_pool.execute(new WorkProofTask(this, i));
-			}		
-			
-		}
-		
-		private void terminate() {
-			for(WorkProof worker : workers) {
-				worker.quit();
-			}
-		}
-	}
-	
-	/**
-	 * 
-	 * @author huangkaixuan
-	 */
-	private class WorkProofTask implements Runnable {
-		private final ConcurrentWorkCalculator batch;
-		private final WorkProof self_worker;
-		
-		/**
-		 * @param to_thread ߳
-		 * @param proof_workers
-		 */
-		private WorkProofTask(ConcurrentWorkCalculator batch, int index) {
-			this.batch = batch;
-			self_worker = batch.workers[index];
-		}
-		
-		@Override
-		public void run() {
-			try {
-				if (self_worker.startWork() &&  batch.lock.tryLock()) {
-					//ɹ
-					batch.terminate();//̼߳
-					WorkResult result = self_worker.getResult();
-					
-					//Ϣ,֤
-					byte[] toSend = Arrays.copyOf(result.source, result.source.length + 1 + result.nonce.length);
-					if (work_proof_thread_num == 1) {
-						toSend[result.source.length] = (byte)result.nonce.length;
-					} else {
-						//߳indexnonce_sizeֽλ
-						toSend[result.source.length] = toSend[result.source.length - 1];
-						toSend[result.source.length - 1] = (byte)(result.nonce.length + 1);
-					}
-					
-					System.arraycopy(result.nonce, 0, toSend, result.source.length+1, result.nonce.length);
-					logInfo("㲥:" + Arrays.toString(toSend));
-					floodAsync(toSend, null, batch.msg);
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		
-	}
-	
 	/**
 	 * Ϣص
 	 * 
@@ -152,9 +83,9 @@ public class Node {
 	private class MessageCallback implements Runnable {
 		private final Message _msg;
 		private final NodeSocket _sock;
-		private byte[] rawData;
+		private PooledBuffer rawData;//תõԭʼϢ,صͷ
 
-		MessageCallback(Message message, NodeSocket sock, byte[] rawData) {
+		MessageCallback(Message message, NodeSocket sock, PooledBuffer rawData) {
 			_msg = message;
 			_sock = sock;
 			this.rawData = rawData;
@@ -162,9 +93,24 @@ public class Node {
 
 		@Override
 		public void run() {
-			logInfo("<<<--" + _msg.getClass(), _sock);
-			_msg.onReceive(new Responser(Node.this, _sock, rawData));
-			rawData = null;
+			if (debug) {
+				logInfo("<<<--" + _msg.getClass(), _sock);
+			}
+			Responser respon = new Responser(Node.this, _sock, rawData);
+			try {
+				_msg.onReceive(respon);
+				
+				//ڵ㽻ɺԷѽ,ʹڵĹ㲥
+				if (_msg instanceof NodesExchange && _sock.added && _sock.outbox_checked.compareAndSet(false, true)) {
+					finishPending(outbox.deliver(_sock, difficulity.getRequired(System.currentTimeMillis())));
+				}
+			} finally {
+				respon.finish();
+				if (rawData != null) {
+					rawData.release();
+					rawData = null;
+				}
+			}
 	
 			// յϢδƳرsocket
 			if (!connected_nodes.contains(_sock)) {
@@ -188,6 +134,11 @@ public class Node {
 	 */
 	private class HeartBeatEvent implements Runnable {
 		public void run() {
+			long now_millis = System.currentTimeMillis();
+			if (difficulity.adjust(now_millis)) {
+				advertiseDifficulity();
+			}
+			finishPending(outbox.expire(now_millis, difficulity.getRequired(now_millis)));
 			int now = getTimestamp();
 			for (NodeSocket sock : connected_nodes) {
 				//15ûл(/Ϣ),ͻ˷һ̽,Ӻ2̽
@@ -202,252 +153,279 @@ public class Node {
 	}
 
 	/**
-	 * Ϣѭ߳
+	 * Ϣѭ
 	 * 
 	 * @author huangkaixuan
 	 *
 	 */
-	private class MessageLoopThread extends Thread {
-		MessageLoopThread(NodeSocket _sock) {
-			super(message_loop_group, new Runnable() {
-				public void run() {
-					try {
-						DataInputStream in = new DataInputStream(new BufferedInputStream(_sock.getInputStream(),52));
-						if (!in.markSupported()) {
-							System.err.println("Message loop stream don't support mark");
-							return;
-						}
-						
-						// Эͷ
-						_sock.getOutputStream().write(HANDSHAKE_FLAG);
-						
-						// ֤Эͷ
-						byte[] buffer = new byte[HANDSHAKE_FLAG.length];
-						in.readFully(buffer);
-						if (!Arrays.equals(buffer, HANDSHAKE_FLAG)) {
-							_sock.close();
-							logInfo("ЧЭͷ"+ new String(buffer), _sock);
+	private class MessageLoop implements Runnable {
+		private final NodeSocket _sock;
+		
+		MessageLoop(NodeSocket sock) {
+			_sock = sock;
+		}
+		
+		public void run() {
+			try {
+				FrameDecoder decoder = new FrameDecoder(Node.this, _sock);
+				InputStream in = _sock.getInputStream();
+				
+				// Эͷ
+				_sock.send(PooledBuffer.wrap(HANDSHAKE_FLAG), true);
+				
+				// ֤Эͷ
+				byte[] buffer;
+				while ((buffer = decoder.read(HANDSHAKE_FLAG.length)) == null) {
+					if (decoder.fill(in) < 0) {
+						throw new EOFException();
+					}
+				}
+				if (!Arrays.equals(buffer, HANDSHAKE_FLAG)) {
+					_sock.close();
+					logInfo("ЧЭͷ"+ new String(buffer), _sock);
+					return;
+				}
+				buffer = null;
+
+				// ͻ˷ڵ㽻
+				if (_sock.isClient) {
+						if (!sendTo(_sock, new NodesExchange(Node.this, 0))) {
 							return;
 						}
-						buffer = null;
+				}
 
-						// ͻ˷ڵ㽻
-						if (_sock.isClient) {
-								if (!sendTo(_sock, new NodesExchange(Node.this, 0))) {
-									return;
-								}
+				//Ϣѭ
+				do {
+					int status = decoder.decode();
+					if (status == FrameDecoder.FRAME_PARTIAL) {
+						if (decoder.fill(in) < 0) {
+							throw new EOFException();
 						}
+						continue;
+					} else if (status == FrameDecoder.FRAME_INVALID) {
+						break;
+					}
+					
+					FrameAction action = handleFrame(_sock, decoder.getFrame());
+					if (action == FrameAction.STOP) {
+						if (_sock.added) {
+							return;
+						}
+						linger(in);
+						break;
+					} else if (action == FrameAction.CLOSE) {
+						break;
+					}
+				} while (true);
+				// <<<ѭȡϢ
 
-						int msg_type;// Ϣ:0/̽ڵ1/ڵб2/ܾ3/ͨ5/½ڵ㹲6/ԶϢ7
-						byte[] netID = new byte[16];//id
-						int msg_len;// Ϣ
-						int msg_code = 0;//Ϣ
-						boolean is_broadcast;//Ƿ㲥
-						boolean node_added = false;//ڵǷѾ
-						int header_length;//Ϣͷ
-						byte[] header_buffer =  new byte[25];//Ϣͷ
-						byte[] buffer_total = null;//Ϣ
-						byte[] nonce = null;
-						MessageDigest md5_digest = MessageDigest.getInstance("MD5");
-						
-						//Ϣѭ
-						do {
-							header_length = 0;
-							in.mark(27);		
-							//Ϣ,Ƿ㲥
-							msg_type = in.readUnsignedByte(); 
-							is_broadcast = msg_type >= 0x80;//Ƿ㲥
-							msg_type &= ~0x80;
-							header_length++;
-							
-							
-							if (msg_type == 7) {
-								if (!node_added) {
-									//δӲԶϢ
-									logInfo("ܾδӽڵԶϢ", _sock);
-									break;
-								}
-							} else {
-								if (msg_type > 7) {
-									logInfo("ЧϢ", _sock);
-									break;
-								}
-							}
-							
-							if (msg_type == 7) {
-								in.read(netID);//id
-								if (Arrays.equals(emptyNetID,netID)) {
-									//粻ԶϢ
-									logInfo("Ч", _sock);
-									break;
-								}
-								msg_code = in.readUnsignedShort();//Ϣ
-								header_length += 16 + 2;
-							}
-							
-							msg_len = in.readInt(); //Ϣ
-							header_length += 4;
-							
-							//ȡϢͷ
-							if (is_broadcast) {
-								in.readInt();
-								header_length += 4;
-								in.reset();
-								in.read(header_buffer, 0, header_length);
-							}
-							
-							//ȡϢ
-							buffer = new byte[msg_len];
-							in.readFully(buffer);
-							
-							if (is_broadcast) {
-							//ȡNonce
-								int nonce_size = in.readUnsignedByte();
-								if (nonce_size > 16) {
-									break;
-								}
-								nonce = new byte[nonce_size];
-								in.read(nonce);
-							}
-							// ӻʱ
-							_sock.touch();
-							
-							if (is_broadcast) {
-								buffer_total = new byte[header_length + buffer.length +nonce.length];
-								System.arraycopy(header_buffer, 0, buffer_total, 0, header_length);
-								System.arraycopy(buffer, 0, buffer_total, header_length, msg_len);
-								//buffer_total[header_length + buffer.length] = (byte)nonce.length;
-								System.arraycopy(nonce, 0, buffer_total, header_length + buffer.length, nonce.length);
-								
-								//鹤
-								int difficulity = WorkProof.getDifficulity(md5_digest.digest(buffer_total));
-								if (difficulity < broadcast_difficulity) {
-									logInfo("㲥" + broadcast_difficulity );
-									continue;
-								}
-								
-								//عϢ,nonce size
-								buffer_total = new byte[buffer_total.length + 1];
-								System.arraycopy(header_buffer, 0, buffer_total, 0, header_length);
-								System.arraycopy(buffer, 0, buffer_total, header_length, msg_len);
-								buffer_total[header_length + buffer.length] = (byte)nonce.length;
-								System.arraycopy(nonce, 0, buffer_total, header_length + buffer.length + 1, nonce.length);
-								//ѭϢ
-								if (!bloom_filter.add(buffer_total)) {
-									//logInfo("ֹջϢ",_sock);
-									continue;
-								}	
-								
-								logInfo("յ㲥,Ѷ:"+difficulity);
-							}
-							
-							Message msg = null;
-							try {
-								// Ϣ:0/̽ڵ1/ڵб2/ܾ3/ͨ5/½ڵ㹲6/ԶϢ7
-								switch (msg_type) {
-								case 0:
-									msg = new HeartBeat();
-									break;
-								case 1:
-									msg = new NodeDetection();
-									break;
-								case 2:
-									msg = new NodesExchange();
-									break;
-								case 3:
-									msg = new ConnectionRefuse();
-									break;
-								case 5:
-									msg = new ConnectivityDetectProxy();
-									break;
-								case 6:
-									msg = new NewNodesShare();
-									break;
-								case 7:
-									if (!MessageDigest.isEqual(netID, Node.this.netID)) {
-										//ǱϢֱת
-										if (is_broadcast) {
-											floodAsync(buffer_total, _sock, null);
-											buffer_total = null;
-										}
-										continue;
-									}
-									msg = Registry.newMessageInstance(msg_code);
-									break;
-								}
-								
-								//logInfo("յϢ,Ϣ:"+buffer.length+ "ֽ" + " ǳ:" + msg_len);
-								msg.input(new DataInputStream(new ByteArrayInputStream(buffer)), msg_len);
-								buffer = null;
-								
-								// δ
-								if (!node_added) {
-									if (_sock.isClient) {
-										if (msg instanceof NodesExchange) {// 
-											node_added = true;
-										}
-									} else {
-										// 
-										if (msg instanceof NodesExchange) {
-											if (connected_nodes.size() >= max_connections) {
-												// 
-												NodesExchange nodesAvailable = new NodesExchange(Node.this, ((NodesExchange)msg).max_req);//ɿýڵͻ
-												nodesAvailable.max_req = 0;
-												sendTo(_sock, new ConnectionRefuse("Connections are full", nodesAvailable));
-												logInfo("" + max_connections, _sock);
-											} else {
-												// 
-												node_added = true;
-											}
-										}
-
-									}
-
-									if (node_added) {
-										addConnected(_sock);
-										logInfo("½ڵ", _sock);
-									}
-								}
-
-								// ֻнܵӻ̽;ܾϢ
-								if (node_added || msg instanceof NodeDetection || msg instanceof ConnectionRefuse) {
-									worker_pool.execute(new MessageCallback(msg, _sock, is_broadcast ? buffer_total:null));
-								}
-								buffer_total = null;
-
-								// δӳػ̱߳ж
-								if (!node_added || Thread.currentThread().isInterrupted()) {
-									return;
-								}
-								
-							} catch (InstantiationException | IllegalAccessException e) {
-								e.printStackTrace();
-								break;
-							} catch (UnrecognizedMessage e) {
-								// ޷ʶϢ,Ͽ
-								logInfo("޷ʶϢ", _sock);
-								break;
-							}
-						} while (true);
-						// <<<ѭȡϢ
+			} catch (Exception e) {
+				// Ϣȡ
+				if (debug) {
+					e.printStackTrace();
+				}
+			}
+			logInfo("ڵ㱻Ƴ", _sock);
+			delConnected(_sock);
 
-					} catch (Exception e) {
-						// Ϣȡ
-						if (debug) {
-							e.printStackTrace();
+		}
+		
+		/**
+		 * ʧܺյ,ֱԷرաصرӻʱ
+		 * @param in
+		 * @throws IOException ȡʱѹر
+		 */
+		private void linger(InputStream in) throws IOException {
+			byte[] discard = new byte[256];
+			long deadline = System.currentTimeMillis() + connect_timeout;
+			while (in.read(discard) >= 0 && System.currentTimeMillis() < deadline) {
+			}
+		}
+	}
+	
+	/**
+	 * Ϣ
+	 */
+	enum FrameAction {
+		CONTINUE,//ȡ
+		STOP,//ֹͣȡ,Ƴڵ
+		CLOSE;//Ƴڵ
+	}
+	
+	/**
+	 * һѶȡϢ,NIOģʽ
+	 * @param _sock
+	 * @param frame
+	 * @return
+	 * @throws Exception
+	 */
+	FrameAction handleFrame(NodeSocket _sock, Frame frame) throws Exception {
+		// ӻʱ
+		_sock.touch();
+		
+		if (frame.broadcast) {
+			byte[] proof_digest;
+			int proof_difficulity = -1;//֤Ĺ㲥ûй
+			boolean own_network = frame.type == 7 && MessageDigest.isEqual(frame.netID, netID);
+			if (authenticator != null && own_network) {
+				//Ĺ㲥֤
+				proof_digest = authenticator.verify(frame);
+				if (proof_digest == null) {
+					logInfo("㲥֤ʧ", _sock);
+					return FrameAction.CONTINUE;
+				}
+			} else {
+				//鹤,ժҪζϢͷϢnonce,nonceֽ
+				MessageDigest md5_digest = frame.md5_digest;
+				md5_digest.update(frame.data, frame.offset, frame.header_length + frame.length);
+				md5_digest.update(frame.data, frame.nonceOffset(), frame.nonce_size);
+				proof_digest = md5_digest.digest();
+				//簴ǰѶȼ,Ѷδ֪,޼
+				int required = own_network ? difficulity.getRequired(System.currentTimeMillis()) : broadcast_difficulity_min;
+				proof_difficulity = WorkProof.getDifficulity(proof_digest);
+				if (proof_difficulity < required) {
+					logInfo("㲥" + required);
+					return FrameAction.CONTINUE;
+				}
+			}
+			
+			//ѭϢ,Թ֤ժҪ֤ΪϢʶ,ٶϢ¹ϣ
+			if (!duplicate_suppressor.record(proof_digest)) {
+				//logInfo("ֹջϢ",_sock);
+				return FrameAction.CONTINUE;
+			}	
+			
+			if (own_network) {
+				difficulity.record();
+			}
+			if (proof_difficulity >= 0 && debug) {
+				logInfo("յ㲥,Ѷ:"+proof_difficulity);
+			}
+		}
+		
+		Message msg = null;
+		try {
+			// Ϣ:0/̽ڵ1/ڵб2/ܾ3/ͨ5/½ڵ㹲6/ԶϢ7
+			switch (frame.type) {
+			case 0:
+				msg = new HeartBeat();
+				break;
+			case 1:
+				msg = new NodeDetection();
+				break;
+			case 2:
+				msg = new NodesExchange();
+				break;
+			case 3:
+				msg = new ConnectionRefuse();
+				break;
+			case 5:
+				msg = new ConnectivityDetectProxy();
+				break;
+			case 6:
+				msg = new NewNodesShare();
+				break;
+			case 7:
+				if (!MessageDigest.isEqual(frame.netID, Node.this.netID)) {
+					//ǱϢֱת
+					if (frame.broadcast) {
+						floodAsync(relayFrame(frame), _sock);
+					}
+					return FrameAction.CONTINUE;
+				}
+				msg = frame.code == Registry.BUNDLE_CODE ? new BroadcastBundle() : Registry.newMessageInstance(frame.code);
+				break;
+			}
+			
+			//logInfo("յϢ,Ϣ:"+buffer.length+ "ֽ" + " ǳ:" + msg_len);
+			msg.input(frame.body(), frame.length);
+			
+			if (msg instanceof BroadcastBundle) {
+				//㲥תһ,Ϣͬһصδ
+				if (frame.broadcast && _sock.added) {
+					BroadcastBundle bundle = (BroadcastBundle) msg;
+					if (bundle.getUnrecognized() > 0) {
+						logInfo("㲥޷ʶϢ:" + bundle.getUnrecognized(), _sock);
+					}
+					floodAsync(relayFrame(frame), _sock);
+					executor.execute(new MessageCallback(bundle, _sock, null));
+				}
+				return FrameAction.CONTINUE;
+			}
+			
+			// δ
+			if (!_sock.added) {
+				if (_sock.isClient) {
+					if (msg instanceof NodesExchange) {// 
+						_sock.added = true;
+					}
+				} else {
+					// 
+					if (msg instanceof NodesExchange) {
+						if (connected_nodes.size() >= max_connections) {
+							// 
+							NodesExchange nodesAvailable = new NodesExchange(Node.this, ((NodesExchange)msg).max_req);//ɿýڵͻ
+							nodesAvailable.max_req = 0;
+							sendTo(_sock, new ConnectionRefuse("Connections are full", nodesAvailable));
+							logInfo("" + max_connections, _sock);
+						} else {
+							// 
+							_sock.added = true;
 						}
 					}
-					logInfo("ڵ㱻Ƴ", _sock);
-					delConnected(_sock);
 
 				}
-			});
-			this.setDaemon(true);
-		}
 
+				if (_sock.added) {
+					addConnected(_sock);
+					logInfo("½ڵ", _sock);
+					_sock.established.complete(_sock);
+				} else if (msg instanceof ConnectionRefuse) {
+					_sock.established.completeExceptionally(new ConnectionFull("Connection refused by "
+							+ _sock.getInetAddress().getHostAddress() + ":" + _sock.getPort() + "," + msg));
+				}
+			}
+
+			// ֻнܵӻ̽;ܾϢ
+			if (_sock.added || msg instanceof NodeDetection || msg instanceof ConnectionRefuse) {
+				executor.execute(new MessageCallback(msg, _sock, frame.broadcast ? relayFrame(frame) : null));
+			}
+
+			// δӳ,ʧ,ȴظͳر
+			if (!_sock.added) {
+				_sock.established.completeExceptionally(new SocketException("Handshake not completed"));
+				return FrameAction.STOP;
+			}
+			
+			// ̱߳ж
+			if (Thread.currentThread().isInterrupted()) {
+				return FrameAction.STOP;
+			}
+			
+		} catch (InstantiationException | IllegalAccessException e) {
+			e.printStackTrace();
+			return FrameAction.CLOSE;
+		} catch (UnrecognizedMessage e) {
+			// ޷ʶϢ,Ͽ
+			logInfo("޷ʶϢ", _sock);
+			return FrameAction.CLOSE;
+		}
+		return FrameAction.CONTINUE;
+	}
+	
+	/**
+	 * 㲥ת,еڴ󼴱
+	 * @param frame
+	 * @return
+	 */
+	private static PooledBuffer relayFrame(Frame frame) {
+		PooledBuffer relay = bufferPool().allocate(frame.wireLength());
+		relay.buffer().put(frame.data, frame.offset, frame.wireLength());
+		relay.buffer().flip();
+		return relay;
 	}
 
-	private final static byte[] HANDSHAKE_FLAG;// Эֱʶ
+	final static byte[] HANDSHAKE_FLAG;// Эֱʶ
 
 	public static final int heart_beat_interval = 15;// ,,һδһ
 
@@ -459,11 +437,15 @@ public class Node {
 
 	public boolean debug = false;// ־
 	
-	public final int MAX_MESSAGE_LENGTH = Integer.MAX_VALUE;
+	public final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;//Ϣ󳤶,շ
 
 	private static final int bloom_filter_size;// ¡ռ
 	
 	private final byte[] netID;//ڵ
+	
+	private final BroadcastAuthenticator authenticator;//˽㲥֤,nullΪʹù֤
+	
+	private final DifficulityController difficulity;//㲥Ѷ
 
 	static int getTimestamp() {
 		return (int) (System.currentTimeMillis() / 1000);
@@ -477,14 +459,20 @@ public class Node {
 	private final Random broadcast_random;//㲥
 
 	private final ThreadGroup message_loop_group;// Ϣѭ߳
+	
+	private final Set<Thread> virtual_loop_threads;// ߳ģʽµϢѭ߳
 														
 	private ScheduledExecutorService heart_beater;// 
 
-	private BloomFilter bloom_filter;// ¡
+	private volatile DuplicateSuppressor duplicate_suppressor;// 㲥ȥ,Ĭϲ¡
 
-	private static final ExecutorService worker_pool;// Ϣ̳߳
+	private final ExecutorService executor;// ڵϢִ,رսڵʱ֮ر
 
-	private static ExecutorService work_proof_generate_pool;//֤
+	private static volatile WorkProofScheduler work_proof_scheduler;//֤,ڵ㹲
+	
+	private static volatile WorkProofCalibration work_proof_calibration;//һУ׼
+	
+	private final Set<Job> broadcast_jobs;//ڵδɵĹ㲥
 	
 	public NodeConnectedEvent onConnect; // Ӷ
 	
@@ -496,9 +484,67 @@ public class Node {
 	
 	public PublicNodesFound onNodesFound;//½ڵ㷢
 	
-	public static int work_proof_thread_num = 4;//֤߳
+	public static int work_proof_thread_num = 0;//֤߳,0Ϊ״ι㲥ʱУ׼ѡ
+	
+	public static boolean work_proof_multi_lane = true;//֤Ƿ·
+	
+	public static int broadcast_bundle_window = 50;//ϲ㲥ռ,
+	
+	public static int broadcast_bundle_bytes = 64 * 1024;//ϲ㲥ֽԤ,ﵽ
+	
+	private final BroadcastBundler bundler;//ϲ㲥ռ
+	
+	public static int broadcast_outbox_ttl = 300;//ʹڵĹ㲥ȴʱ,
+	
+	public static int broadcast_outbox_size = 256;//ȴĹ㲥
+	
+	private final BroadcastOutbox outbox;//ȴĹ㲥
+	
+	public static int outbound_queue_size = 1024;//ÿӷͶпɵϢ
+	
+	public static int write_coalesce_delay = 2;//дϲ,,0Ϊϲ
+	
+	public static int write_coalesce_bytes = 16 * 1024;//ֽܹд
+	
+	private final OutboundStats outbound_stats;//ͳ
+	
+	public static int probe_concurrency = 32;//ڵ̽󲢷
+	
+	public static int probe_subnet_concurrency = 2;//ͬһνڵ̽󲢷
+	
+	public static int probe_cache_ttl = 600;//̽ɹʱ,
+	
+	public static int probe_negative_cache_ttl = 120;//̽ʧܽʱ,
+	
+	private final ReachabilityProber prober;//ڵ̽
+	
+	private final Set<InetSocketAddress> connecting;//ڽTCPӵĵַ
+	
+	public static boolean direct_buffer_pool = false;//Ϣʹöڴ
+	
+	public static int dedup_window_size = 0;//㲥ȥÿ¼Ϣ,0Ϊ
+	
+	public static int dedup_window_seconds = 0;//㲥ȥÿʱ,,0Ϊ
 	
-	public static int broadcast_difficulity = 21; //㲥Ѷ,ǰ,ѶΪ21ʱڵÿſԹ㲥8Ϣ,1Ѷȷ
+	public static int nio_event_loop_num = Runtime.getRuntime().availableProcessors();//NIO¼ѭ߳,NIOģʽڵ㹲
+	
+	private static NioEventLoop[] nio_event_loops;//NIO¼ѭ߳
+	
+	private static int nio_event_loop_index;//һӵ¼ѭ
+	
+	private final TransportMode transport_mode;//ģʽ
+	
+	public static int broadcast_difficulity = 21; //ʼ㲥Ѷ,1Ѷȷ,ǰʱgetExpectedProofTime()
+	
+	public static int broadcast_difficulity_min = 16;//㲥Ѷ,Ĺ㲥޼
+	
+	public static int broadcast_difficulity_max = 28;//㲥Ѷ
+	
+	public static int broadcast_target_rate = 10;//Ŀ㲥ٶ,ÿ
+	
+	public static int difficulity_adjust_interval = 30;//㲥Ѷȵ,
+	
+	public static int difficulity_grace_period = 60;//Ѷȱ仯ͬʱܾѶȵʱ,
 	
 	private Thread listen_thread;//߳
 
@@ -508,7 +554,7 @@ public class Node {
 
 	private static final ArrayList<InetAddress> local_addresses; // IPַ
 	
-	private static final byte[] emptyNetID;
+	static final byte[] emptyNetID;
 
 	static {
 		//ID
@@ -520,9 +566,7 @@ public class Node {
 		// ¡С,Ĭ1MB
 		bloom_filter_size = 1024 * 1024 * 1;
 		
-		// ʼ̳߳
-		worker_pool = Executors.newCachedThreadPool();
-		
+
 		// ȡַ
 		local_addresses = new ArrayList<InetAddress>(5);
 		InetAddress addr;
@@ -549,14 +593,59 @@ public class Node {
 
 	// >>>ʵģʽ,ServerClient
 	public Node(String network) {
+		this(network, TransportMode.BLOCKING);
+	}
+	
+	/**
+	 * ˽,㲥ԹԿ֤湤֤
+	 * @param network 
+	 * @param secret 繲Կ
+	 */
+	public Node(String network, byte[] secret) {
+		this(network, TransportMode.BLOCKING, secret);
+	}
+	
+	/**
+	 * ָģʽ
+	 * @param network ,nullΪ
+	 * @param mode ģʽ
+	 */
+	public Node(String network, TransportMode mode) {
+		this(network, mode, null);
+	}
+	
+	/**
+	 * ָģʽ繲Կ
+	 * ԿʱĹ㲥HMAC֤,㹤֤;Ĺ㲥蹤֤
+	 * @param network ,ԿʱΪnull
+	 * @param mode ģʽ
+	 * @param secret 繲Կ,nullΪ֤
+	 */
+	public Node(String network, TransportMode mode, byte[] secret) {
+		if (secret != null && network == null) {
+			throw new IllegalArgumentException("Secret requires a network");
+		}
+		if (mode == TransportMode.VIRTUAL_THREAD && !VirtualThreads.isSupported()) {
+			logInfo("֧߳,ʹģʽ");
+			mode = TransportMode.BLOCKING;
+		}
+		transport_mode = mode;
 		connected_nodes = new CopyOnWriteArrayList<NodeSocket>();
 		message_loop_group = new ThreadGroup("MESSAGE_LOOP");
+		virtual_loop_threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		executor = mode == TransportMode.VIRTUAL_THREAD ? VirtualThreads.newExecutor() : Executors.newCachedThreadPool();
+		outbound_stats = new OutboundStats();
+		prober = new ReachabilityProber(this, executor);
+		connecting = Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress, Boolean>());
+		broadcast_jobs = Collections.newSetFromMap(new ConcurrentHashMap<Job, Boolean>());
+		outbox = new BroadcastOutbox();
+		difficulity = new DifficulityController(broadcast_difficulity);
 		
 		
 
 		// ڵб
 		try {
-			bloom_filter = new BloomFilter(bloom_filter_size, 0.5);
+			duplicate_suppressor = new BloomFilter(bloom_filter_size, 0.5, dedup_window_size, dedup_window_seconds * 1000L);
 			public_nodes_list = new LimitedRandomSet<InetSocketAddress>(public_nodes_list_size);
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -575,13 +664,96 @@ public class Node {
 			netID = digest.digest(network.getBytes());
 		}
 		
+		if (secret == null) {
+			authenticator = null;
+		} else {
+			try {
+				authenticator = new BroadcastAuthenticator(secret);
+			} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+		
 		logInfo("ʼ");
 		heart_beater = Executors.newSingleThreadScheduledExecutor();
 		heart_beater.scheduleAtFixedRate(new HeartBeatEvent(), 0, 1, TimeUnit.SECONDS);
+		bundler = new BroadcastBundler(this, heart_beater);
 		broadcast_random = new Random();
 	}
 	
 
+	/**
+	 * ȡģʽ
+	 * @return
+	 */
+	public TransportMode getTransportMode() {
+		return transport_mode;
+	}
+	
+	/**
+	 * ȡͳ
+	 * @return
+	 */
+	public OutboundStats getOutboundStats() {
+		return outbound_stats;
+	}
+	
+	/**
+	 * ù㲥ȥ,ԭʵCloseableʱ֮ر
+	 * @param suppressor
+	 */
+	public void setDuplicateSuppressor(DuplicateSuppressor suppressor) {
+		if (suppressor == null) {
+			throw new NullPointerException();
+		}
+		DuplicateSuppressor previous = duplicate_suppressor;
+		duplicate_suppressor = suppressor;
+		if (previous != suppressor && previous instanceof Closeable) {
+			try {
+				((Closeable) previous).close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Ԥƹ㲥Ŀò¡
+	 * ÿСԤƹ㲥ʼ,֮ʵʹ㲥ٶȵ
+	 * @param expected_broadcasts ÿʱԤյĹ㲥
+	 * @param false_positive_rate Ŀ
+	 * @param window_seconds ȥʱ,
+	 */
+	public void setDuplicateFilter(int expected_broadcasts, double false_positive_rate, int window_seconds) {
+		setDuplicateSuppressor(BloomFilter.create(expected_broadcasts, false_positive_rate, window_seconds * 1000L));
+	}
+	
+	/**
+	 * ʹӳ䵽ļĲ¡,ͬһļʶǰյĹ㲥
+	 * @param file ļ,ڻһʱ´
+	 * @param window_seconds ȥʱ,,0Ϊ
+	 * @throws IOException
+	 */
+	public void setPersistentDuplicateFilter(File file, int window_seconds) throws IOException {
+		setDuplicateSuppressor(new MappedBloomFilter(file, bloom_filter_size, 0.5, window_seconds * 1000L));
+	}
+	
+	/**
+	 * ȡ㲥ȥ
+	 * @return
+	 */
+	public DuplicateSuppressor getDuplicateSuppressor() {
+		return duplicate_suppressor;
+	}
+	
+	/**
+	 * Ϣ
+	 * @return
+	 */
+	static BufferPool bufferPool() {
+		return direct_buffer_pool ? BufferPool.DIRECT : BufferPool.HEAP;
+	}
+	
 	/**
 	 * ȡӽڵ
 	 * @return
@@ -628,12 +800,11 @@ public class Node {
 		sock.setSoTimeout(0);
 		connected_nodes.add(sock);
 		if (onConnect != null) {
-			Thread t = new Thread() {
+			Thread t = newThread(new Runnable() {
 				public void run() {
 					onConnect.trigger(sock.getInetAddress(), sock.getPort(), Node.this);
 				}
-			};
-			t.setDaemon(true);
+			}, true);
 			t.start();
 		}
 
@@ -651,16 +822,71 @@ public class Node {
 	 * @return 
 	 */
 	public Set<InetSocketAddress> addPublicNodes(Set<InetSocketAddress> addresses, boolean no_detection) {
-			logInfo("ڵб..");
-			return public_nodes_list.addAll(addresses, new Predicate<InetSocketAddress>() {
+		return addPublicNodes(addresses, no_detection, false, null);
+	}
+	
+	/**
+	 * ӹڵ
+	 * Ҫ̽Ľڵ첽̽,̽ɹټб
+	 * 
+	 * @param addresses
+	 * @param no_detection ͨ
+	 * @param share ̽ɹĽڵǷھ,ȫ̽ɺһι
+	 * @param from Դ,Ϊnull
+	 * @return Ľڵ
+	 */
+	private Set<InetSocketAddress> addPublicNodes(Set<InetSocketAddress> addresses, boolean no_detection, boolean share, NodeSocket from) {
+		logInfo("ڵб..");
+		Set<InetSocketAddress> to_probe = new HashSet<InetSocketAddress>();
+		Set<InetSocketAddress> added = public_nodes_list.addAll(addresses, new Predicate<InetSocketAddress>() {
+			@Override
+			public boolean test(InetSocketAddress socketAddr) {
+				InetAddress addr = socketAddr.getAddress();
+				if (isOwnedAddress(addr) || !isInternetAddress(addr) || addr == getServerAddress()) {
+					return true;
+				}
+				if (no_detection) {
+					return false;
+				}
+				
+				// лֱʹ,Ժ̽
+				Boolean reachable = prober.cached(socketAddr);
+				if (reachable == null) {
+					to_probe.add(socketAddr);
+					return true;
+				}
+				return !reachable;
+			}
+		});
+		
+		// Խڵб̽,̽ɹ,μĽڵȫ̽ϲΪһϢ
+		Set<InetSocketAddress> admitted = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+		CompletableFuture<?>[] probes = new CompletableFuture<?>[to_probe.size()];
+		int i = 0;
+		for (InetSocketAddress socketAddr : to_probe) {
+			probes[i++] = prober.probe(socketAddr).thenAccept(new Consumer<Boolean>() {
 				@Override
-				public boolean test(InetSocketAddress socketAddr) {
-					// Խڵб̽
-					InetAddress addr = socketAddr.getAddress();
-					return isOwnedAddress(addr) || !isInternetAddress(addr) || addr == getServerAddress() || !no_detection && !detect(addr, socketAddr.getPort());
+				public void accept(Boolean reachable) {
+					if (!reachable) {
+						return;
+					}
+					Set<InetSocketAddress> single = new HashSet<InetSocketAddress>();
+					single.add(socketAddr);
+					admitted.addAll(public_nodes_list.addAll(single, null));
 				}
 			});
-
+		}
+		if (share && probes.length > 0) {
+			CompletableFuture.allOf(probes).thenRun(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (admitted) {
+						sharePublicNodes(new HashSet<InetSocketAddress>(admitted), from);
+					}
+				}
+			});
+		}
+		return added;
 	}
 	
 	
@@ -672,7 +898,15 @@ public class Node {
 	 */
 	public void addAndSharePublicNodes(Set<InetSocketAddress> addresses,NodeSocket from, boolean dont_detect) {
 		logInfo("ӽڵ..", from);
-		Set<InetSocketAddress> newPublicAddresses = addPublicNodes(addresses, dont_detect);
+		sharePublicNodes(addPublicNodes(addresses, dont_detect, true, from), from);
+	}
+	
+	/**
+	 * ¼Ĺڵ
+	 * @param newPublicAddresses
+	 * @param from Դ,Ϊnull
+	 */
+	private void sharePublicNodes(Set<InetSocketAddress> newPublicAddresses, NodeSocket from) {
 		if (newPublicAddresses.size() > 0) {
 			logInfo("תڵ..", from);
 			if (onNodesFound != null) {
@@ -697,67 +931,258 @@ public class Node {
 			}
 		}
 	}
-
+
+	/**
+	 * һipַǷǻɼ
+	 * 
+	 * @param addr
+	 * @return
+	 */
+	public static boolean isInternetAddress(InetAddress addr) {
+		return !(addr.isAnyLocalAddress() || addr.isLinkLocalAddress() || addr.isLoopbackAddress() || addr.isMCGlobal()
+				|| addr.isMCLinkLocal() || addr.isMCNodeLocal() || addr.isMCOrgLocal() || addr.isMCSiteLocal()
+				|| addr.isMulticastAddress() || addr.isSiteLocalAddress());
+
+	}
+
+	/**
+	 * Ƿ񱾻ַ
+	 * 
+	 * @param addr
+	 * @return
+	 */
+	private static boolean isOwnedAddress(InetAddress addr) {
+		return local_addresses.contains(addr);
+	}
+
+	
+	/**
+	 * 㲥Ϣ
+	 * ֤ŶӼ,ɺ󷺺;˽֤湤֤,
+	 * ӵĽڵ㲻ʱճ,ڴ㲥,½ڵʱ
+	 * @param message Ϣ
+	 * @param min_connected ʹĽڵ
+	 * @param priority ȼ,ȼ
+	 * @return ,ɲѯȻȡ
+	 * @throws Exception 
+	 */
+	public Job broadcast(Message message, int min_connected, int priority) throws Exception {
+		byte[] source = packMessage(message, true, netID);
+		if (authenticator != null) {
+			//˽總֤
+			byte[] mac = authenticator.sign(source, 0, source.length);
+			sendProof(message, source, mac, min_connected, 0);
+			return WorkProofScheduler.completed(source, mac);
+		}
+		
+		Job job = workProofScheduler().submit(source, getSendDifficulity(), priority);
+		broadcast_jobs.add(job);
+		job.getResult().whenComplete(new BiConsumer<byte[], Throwable>() {
+			public void accept(byte[] nonce, Throwable error) {
+				broadcast_jobs.remove(job);
+				if (nonce != null) {
+					sendProof(message, job.getSource(), nonce, min_connected, job.getDifficulity());
+				}
+			}
+		});
+		return job;
+	}
+	
+	/**
+	 * 㲥Ϣ
+	 * @param message
+	 * @param min_connected
+	 * @return
+	 * @throws Exception
+	 */
+	public Job broadcast(Message message, int min_connected) throws Exception {
+		return broadcast(message, min_connected, 0);
+	}
+	
+	/**
+	 * 㲥Ϣ,һڵ
+	 * @param message
+	 * @throws Exception 
+	 */
+	public Job broadcast(Message message) throws Exception {
+		return broadcast(message, 1);
+	}
+	
+	/**
+	 * ϲ㲥,ռڻֽԤύϢһ㲥,һι֤
+	 * ӵĽڵ㲻ʱͬ㲥ȴ
+	 * @param message Ϣ
+	 * @param min_connected ʹĽڵ
+	 * @return ڹ㲥ʼʱõ
+	 * @throws Exception
+	 */
+	public CompletableFuture<Job> broadcastBundled(Message message, int min_connected) throws Exception {
+		return bundler.add(message, min_connected);
+	}
+	
+	/**
+	 * ϲ㲥,һڵ
+	 * @param message
+	 * @return
+	 * @throws Exception
+	 */
+	public CompletableFuture<Job> broadcastBundled(Message message) throws Exception {
+		return broadcastBundled(message, 1);
+	}
+	
+	/**
+	 * Ϣ,֤
+	 * @param message
+	 * @param source Ϣ
+	 * @param nonce ֤nonce֤
+	 * @param min_connected ʹĽڵ
+	 * @param proof_difficulity ֤Ѷ,֤㲥Ϊ0
+	 */
+	private void sendProof(Message message, byte[] source, byte[] nonce, int min_connected, int proof_difficulity) {
+		PooledBuffer toSend = bufferPool().allocate(source.length + 1 + nonce.length);
+		ByteBuffer buffer = toSend.buffer();
+		buffer.put(source);
+		buffer.put((byte) nonce.length);
+		buffer.put(nonce);
+		buffer.flip();
+		
+		if (debug) {
+			byte[] content = new byte[buffer.remaining()];
+			buffer.duplicate().get(content);
+			logInfo("㲥:" + Arrays.toString(content));
+		}
+		floodBroadcast(toSend, message, min_connected, proof_difficulity);
+	}
+	
+	/**
+	 * 統ǰĹ㲥Ѷ,㲥ٶڵ
+	 * @return
+	 */
+	public int getBroadcastDifficulity() {
+		return difficulity.getCurrent();
+	}
+	
+	/**
+	 * ͹㲥ʱ֤Ѷ,ȡѶȺھӹѶеĽϴ
+	 * ֻλ𲽸,֤ɱѶȵھӶ㲥
+	 * @return
+	 */
+	private int getSendDifficulity() {
+		int send = difficulity.getCurrent();
+		for (NodeSocket sock : connected_nodes) {
+			send = Math.max(send, Math.min(sock.advertised_difficulity, broadcast_difficulity_max));
+		}
+		return send;
+	}
+	
 	/**
-	 * һipַǷǻɼ
-	 * 
-	 * @param addr
-	 * @return
+	 * ¼ھڽڵ㽻йĹ㲥Ѷ,ѹھӵλʱ
+	 * @param sock
+	 * @param advertised
 	 */
-	public static boolean isInternetAddress(InetAddress addr) {
-		return !(addr.isAnyLocalAddress() || addr.isLinkLocalAddress() || addr.isLoopbackAddress() || addr.isMCGlobal()
-				|| addr.isMCLinkLocal() || addr.isMCNodeLocal() || addr.isMCOrgLocal() || addr.isMCSiteLocal()
-				|| addr.isMulticastAddress() || addr.isSiteLocalAddress());
-
+	public void updatePeerDifficulity(NodeSocket sock, int advertised) {
+		sock.advertised_difficulity = advertised;
+		if (difficulity.follow(getPeerDifficulityMedian(), System.currentTimeMillis())) {
+			advertiseDifficulity();
+		}
 	}
-
+	
 	/**
-	 * Ƿ񱾻ַ
-	 * 
-	 * @param addr
-	 * @return
+	 * ѹѶȵھӵλ,żʱȡϵ
+	 * @return ûھӹʱ0
 	 */
-	private static boolean isOwnedAddress(InetAddress addr) {
-		return local_addresses.contains(addr);
+	private int getPeerDifficulityMedian() {
+		int[] advertised = new int[connected_nodes.size()];
+		int n = 0;
+		for (NodeSocket sock : connected_nodes) {
+			if (n == advertised.length) {
+				break;
+			}
+			if (sock.advertised_difficulity > 0) {
+				advertised[n++] = sock.advertised_difficulity;
+			}
+		}
+		if (n == 0) {
+			return 0;
+		}
+		Arrays.sort(advertised, 0, n);
+		return advertised[(n - 1) / 2];
 	}
-
 	
 	/**
-	 * 㲥Ϣ
-	 * 
-	 * @param type
-	 *            Ϣ
-	 * @param buffer
-	 *            Ϣ
-	 * @throws Exception 
+	 * Ѷȱ仯ͨڵ㽻Ϣ֪ͨھ
 	 */
-	public void broadcast(Message message, int min_connected) throws Exception {
-		int have = getConnectedNum();
-		if (have < min_connected) {
-			throw new NodesNotEnough(min_connected, have);
+	private void advertiseDifficulity() {
+		logInfo("㲥ѶȵΪ" + difficulity.getCurrent());
+		for (NodeSocket sock : connected_nodes) {
+			try {
+				NodesExchange exchange = new NodesExchange(this, 0);
+				exchange.max_req = 0;//ֻѶ,ڵб
+				sendTo(sock, exchange);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 		}
-		
-		//ʵ
-		if (work_proof_generate_pool == null) {
-			synchronized(getClass()) {
-				if (work_proof_generate_pool == null) {
-					work_proof_generate_pool = Executors.newFixedThreadPool(work_proof_thread_num);
+	}
+	
+	/**
+	 * ȡù֤,״ʹʱ
+	 * @return
+	 */
+	private static WorkProofScheduler workProofScheduler() throws InterruptedException {
+		if (work_proof_scheduler == null) {
+			synchronized (Node.class) {
+				if (work_proof_scheduler == null) {
+					int threads = work_proof_thread_num;
+					if (threads <= 0) {
+						WorkProofCalibration calibration = work_proof_calibration;
+						threads = calibration != null ? calibration.getThreadNum() : calibrateWorkProof().getThreadNum();
+					}
+					work_proof_scheduler = new WorkProofScheduler(threads, work_proof_multi_lane);
 				}
 			}
 		}
-		
-		//м㹤й㲥,20Լٶ15Ϣ
-		new ConcurrentWorkCalculator(message, packMessage(message,true, netID),broadcast_difficulity).start();
+		return work_proof_scheduler;
 	}
 	
+	/**
+	 * У׼֤,߳Ĺϣٶ
+	 * work_proof_thread_numΪ0ʱߵ߳,еӰ,ڿʱ
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public static WorkProofCalibration calibrateWorkProof() throws InterruptedException {
+		WorkProofCalibration calibration = WorkProofCalibration.run(Runtime.getRuntime().availableProcessors(), work_proof_multi_lane);
+		work_proof_calibration = calibration;
+		synchronized (Node.class) {
+			if (work_proof_scheduler != null && work_proof_thread_num <= 0) {
+				work_proof_scheduler.setThreadNum(calibration.getThreadNum());
+			}
+		}
+		return calibration;
+	}
 	
 	/**
-	 * 㲥Ϣ,һڵ
-	 * @param message
-	 * @throws Exception 
+	 * ȡһУ׼
+	 * @return δУ׼null
+	 */
+	public static WorkProofCalibration getWorkProofCalibration() {
+		return work_proof_calibration;
+	}
+	
+	/**
+	 * 統ǰ㲥Ѷ±һι֤ʱ,δУ׼ʱУ׼
+	 * @return 
+	 * @throws InterruptedException
 	 */
-	public void broadcast(Message message) throws Exception {
-			broadcast(message, 1);
+	public long getExpectedProofTime() throws InterruptedException {
+		WorkProofCalibration calibration = work_proof_calibration;
+		if (calibration == null) {
+			calibration = calibrateWorkProof();
+		}
+		WorkProofScheduler scheduler = work_proof_scheduler;
+		int threads = scheduler != null ? scheduler.getThreadNum() : work_proof_thread_num > 0 ? work_proof_thread_num : calibration.getThreadNum();
+		return calibration.getExpectedTime(difficulity.getCurrent(), threads);
 	}
 
 	
@@ -770,27 +1195,34 @@ public class Node {
 	 * @throws HugeMessageException 
 	 */
 	public int requestNeighbors(Message message, NodeSocket exclude,int limit) throws HugeMessageException {
-		return flood(packMessage(message, false,   netID), exclude, limit);
+		PooledBuffer frame = packFrame(message, netID);
+		if (frame == null) {
+			return 0;
+		}
+		try {
+			return flood(frame, exclude, limit);
+		} finally {
+			frame.release();
+		}
 	}
 	
 	/**
-	 * Ϣ
-	 * @param _msg
+	 * Ϣ,ӹͬһ,Գһ
+	 * Գframe
+	 * @param frame Ϣ
 	 * @param exclude
 	 * @param limit Ʒ͸ڵ
 	 * @return
 	 */
-	int flood(byte[] _msg, NodeSocket exclude, int limit) {
-		if (_msg == null) {
-			return 0;
-		}
+	int flood(PooledBuffer frame, NodeSocket exclude, int limit) {
 		int nSuccess = 0;
 		for (NodeSocket sock : connected_nodes) {
 			if (exclude == null || !sock.equals(exclude)) {
 				try {
-					OutputStream out = sock.getOutputStream();
-					out.write(_msg);
-					out.flush();
+					if (!sock.send(frame.duplicate(), false)) {
+						//Ͷ,ýڵ
+						continue;
+					}
 					sock.touch();
 					if (++nSuccess > limit && limit > 0) {
 						break;
@@ -800,7 +1232,9 @@ public class Node {
 				}
 			}
 		}
-		logInfo("Ϣ" + nSuccess + "ڵ");
+		if (debug) {
+			logInfo("Ϣ" + nSuccess + "ڵ");
+		}
 
 		return nSuccess;
 	}
@@ -811,27 +1245,103 @@ public class Node {
 	 * @param exclude
 	 * @return
 	 */
-	int flood(byte[] _msg, NodeSocket exclude) {
+	int flood(PooledBuffer _msg, NodeSocket exclude) {
 		return flood(_msg, exclude, 0);
 	}
 	
 	
 	/**
-	 * 첽
+	 * 첽,ͷ_msg
 	 * @param _msg
 	 * @param exclude
 	 */
-	private void floodAsync(byte[] _msg, NodeSocket exclude, Message source) {
-		worker_pool.execute(new Runnable() {
+	private void floodAsync(PooledBuffer _msg, NodeSocket exclude) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flood(_msg, exclude);
+				} finally {
+					_msg.release();
+				}
+			}});
+	}
+	
+	/**
+	 * 첽鱾ڵĹ㲥,ʹڵʱڴ㲥,ȴ½ڵʱ
+	 * ȷ㲥ٳ,ڼӵĽڵɲʹ,©Ҳظ
+	 * @param frame ֤Ϣ,Ƴ㲥ʱͷ
+	 * @param source ԭϢ
+	 * @param min_connected ʹĽڵ
+	 * @param proof_difficulity ֤Ѷ,֤㲥Ϊ0
+	 */
+	private void floodBroadcast(PooledBuffer frame, Message source, int min_connected, int proof_difficulity) {
+		executor.execute(new Runnable() {
 			@Override
 			public void run() {
-				int sent_to = flood(_msg, exclude);
-				if  (source != null && afterBroadcast != null) {
-					afterBroadcast.trigger(source, sent_to, Node.this);
+				BroadcastOutbox.Entry entry = new BroadcastOutbox.Entry(frame, source, Math.max(1, min_connected), proof_difficulity);
+				List<BroadcastOutbox.Entry> removed;
+				synchronized (outbox) {
+					removed = outbox.add(entry);
+					for (NodeSocket sock : connected_nodes) {
+						try {
+							if (entry.sendTo(sock)) {
+								sock.touch();
+							}
+						} catch (IOException e) {
+							delConnected(sock);
+						}
+					}
+					removed.addAll(outbox.settle(entry));
+				}
+				if (debug) {
+					logInfo("Ϣ" + entry.sent_to + "ڵ");
+				}
+				if (!entry.isDone()) {
+					//Ϣ,¼㹤
+					logInfo("㲥ʹڵ㲻,ȴ");
 				}
+				finishPending(removed);
 			}});
 	}
 	
+	/**
+	 * Ƴ㲥Ĺ㲥
+	 * @param entries
+	 */
+	private void finishPending(List<BroadcastOutbox.Entry> entries) {
+		for (BroadcastOutbox.Entry entry : entries) {
+			entry.frame.release();
+			triggerAfterBroadcast(entry.message, entry.sent_to);
+		}
+	}
+	
+	/**
+	 * 㲥¼,㲥ÿϢ
+	 * @param source
+	 * @param sent_to
+	 */
+	private void triggerAfterBroadcast(Message source, int sent_to) {
+		if (afterBroadcast == null) {
+			return;
+		}
+		if (source instanceof BroadcastBundle) {
+			for (Message message : ((BroadcastBundle) source).getMessages()) {
+				afterBroadcast.trigger(message, sent_to, Node.this);
+			}
+		} else {
+			afterBroadcast.trigger(source, sent_to, Node.this);
+		}
+	}
+	
+	/**
+	 * ȴĹ㲥
+	 * @return
+	 */
+	public int getPendingBroadcastNum() {
+		return outbox.size();
+	}
+	
 
 	// <<<ͻģʽ
 
@@ -848,22 +1358,206 @@ public class Node {
 	 * @throws ConnectionFull
 	 * @throws AlreadyConnected 
 	 */
-	synchronized public void connect(InetAddress dest, int port) throws IOException, ConnectionFull, AlreadyConnected {
+	public void connect(InetAddress dest, int port) throws IOException, ConnectionFull, AlreadyConnected {
+		dial(dest, port);
+	}
+	
+	/**
+	 * 첽,ִз
+	 * 
+	 * @param dest
+	 * @param port
+	 * @return ڵ㽻ɹʱ,ܾʱConnectionFull쳣,ʧܻرʱԶӦ쳣
+	 */
+	public CompletableFuture<NodeSocket> connectAsync(InetAddress dest, int port) {
+		CompletableFuture<NodeSocket> future = new CompletableFuture<NodeSocket>();
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					dial(dest, port).established.whenComplete(new BiConsumer<NodeSocket, Throwable>() {
+						@Override
+						public void accept(NodeSocket sock, Throwable e) {
+							if (e != null) {
+								future.completeExceptionally(e);
+							} else {
+								future.complete(sock);
+							}
+						}
+					});
+				} catch (Exception e) {
+					future.completeExceptionally(e);
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * 첽
+	 * һѭ˳,㵽parallelismе;ֻѭٲ,Ƕ׷
+	 * 
+	 * @param addresses
+	 * @param parallelism ͬʱе,ȴڵ㽻
+	 * @return ַӦӽ,˳addressesһ
+	 */
+	public Map<InetSocketAddress, CompletableFuture<NodeSocket>> connectAll(Collection<InetSocketAddress> addresses, int parallelism) {
+		Map<InetSocketAddress, CompletableFuture<NodeSocket>> futures = new LinkedHashMap<InetSocketAddress, CompletableFuture<NodeSocket>>();
+		for (InetSocketAddress addr : addresses) {
+			futures.put(addr, new CompletableFuture<NodeSocket>());
+		}
+		Iterator<Map.Entry<InetSocketAddress, CompletableFuture<NodeSocket>>> it = new ArrayList<Map.Entry<InetSocketAddress, CompletableFuture<NodeSocket>>>(futures.entrySet()).iterator();
+		int limit = Math.max(1, parallelism);
+		AtomicInteger running = new AtomicInteger();//е
+		AtomicInteger requests = new AtomicInteger();//,0ʱ߳ѭ
+		Runnable top_up = new Runnable() {
+			public void run() {
+				if (requests.getAndIncrement() != 0) {
+					//ѭ̻߳ٲһ
+					return;
+				}
+				Runnable top_up = this;
+				do {
+					while (running.get() < limit && it.hasNext()) {
+						Map.Entry<InetSocketAddress, CompletableFuture<NodeSocket>> entry = it.next();
+						InetSocketAddress addr = entry.getKey();
+						running.incrementAndGet();
+						connectAsync(addr.getAddress(), addr.getPort()).whenComplete(new BiConsumer<NodeSocket, Throwable>() {
+							@Override
+							public void accept(NodeSocket sock, Throwable e) {
+								if (e != null) {
+									entry.getValue().completeExceptionally(e);
+								} else {
+									entry.getValue().complete(sock);
+								}
+								// һٲ
+								running.decrementAndGet();
+								top_up.run();
+							}
+						});
+					}
+				} while (requests.decrementAndGet() != 0);
+			}
+		};
+		top_up.run();
+		return futures;
+	}
+	
+	/**
+	 * TCPӲϢѭ,ȴڵ㽻
+	 * 
+	 * @param dest
+	 * @param port
+	 * @return
+	 * @throws IOException
+	 * @throws ConnectionFull
+	 * @throws AlreadyConnected
+	 */
+	private NodeSocket dial(InetAddress dest, int port) throws IOException, ConnectionFull, AlreadyConnected {
 		if (connected_nodes.size() >= max_connections) {
 			throw new ConnectionFull("Max connection:" + max_connections);
 		}
-
-		Socket _sock = new Socket();
-		_sock.connect(new InetSocketAddress(dest, port), connect_timeout);
-		NodeSocket sock = new NodeSocket(_sock, true);
-		if (connected_nodes.contains(sock)) {
-			sock.close();
-			throw new AlreadyConnected(sock.getInetAddress().getHostAddress() + ":" + sock.getPort());
+		
+		InetSocketAddress addr = new InetSocketAddress(dest, port);
+		if (!connecting.add(addr)) {
+			// ͬһڵ
+			throw new AlreadyConnected(dest.getHostAddress() + ":" + port);
 		}
+		try {
+			Socket _sock = transport_mode == TransportMode.NIO ? SocketChannel.open().socket() : new Socket();
+			try {
+				_sock.connect(addr, connect_timeout);
+			} catch (IOException e) {
+				_sock.close();
+				throw e;
+			}
+			NodeSocket sock = new NodeSocket(_sock, true);
+			if (connected_nodes.contains(sock)) {
+				sock.close();
+				throw new AlreadyConnected(sock.getInetAddress().getHostAddress() + ":" + sock.getPort());
+			}
+	
+			startMessageLoop(sock);// Ϣѭ
+			logInfo("", sock);
+			return sock;
+		} finally {
+			connecting.remove(addr);
+		}
+	}
 
-		new MessageLoopThread(sock).start();// Ϣѭ
-		logInfo("", sock);
-
+	/**
+	 * ģʽϢѭ
+	 * 
+	 * @param sock
+	 * @throws IOException 
+	 */
+	private void startMessageLoop(NodeSocket sock) throws IOException {
+		if (transport_mode == TransportMode.NIO) {
+			NioEventLoop loop = nextEventLoop();
+			try {
+				NioSession session = new NioSession(this, sock, loop);
+				sock.setOutbound(session.getOutbound());
+				loop.register(session);
+			} catch (NoSuchAlgorithmException e) {
+				sock.close();
+				throw new IOException(e);
+			}
+			return;
+		}
+		
+		sock.setOutbound(new StreamOutbound(this, sock, outbound_queue_size, executor));
+		if (transport_mode == TransportMode.VIRTUAL_THREAD) {
+			Thread t = VirtualThreads.newThread(new Runnable() {
+				public void run() {
+					try {
+						new MessageLoop(sock).run();
+					} finally {
+						virtual_loop_threads.remove(Thread.currentThread());
+					}
+				}
+			});
+			virtual_loop_threads.add(t);
+			t.start();
+		} else {
+			Thread t = new Thread(message_loop_group, new MessageLoop(sock));
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+	
+	/**
+	 * ģʽδ¼߳
+	 * @param task
+	 * @param daemon Ƿػ߳,߳ػ߳
+	 * @return
+	 */
+	private Thread newThread(Runnable task, boolean daemon) {
+		if (transport_mode == TransportMode.VIRTUAL_THREAD) {
+			return VirtualThreads.newThread(task);
+		}
+		Thread t = new Thread(task);
+		t.setDaemon(daemon);
+		return t;
+	}
+	
+	/**
+	 * NIO¼ѭ߳
+	 * @return
+	 * @throws IOException
+	 */
+	private static NioEventLoop nextEventLoop() throws IOException {
+		synchronized(Node.class) {
+			if (nio_event_loops == null) {
+				int num = Math.max(1, nio_event_loop_num);
+				NioEventLoop[] loops = new NioEventLoop[num];
+				for(int i = 0; i < num; i++) {
+					loops[i] = new NioEventLoop(i);
+					loops[i].start();
+				}
+				nio_event_loops = loops;
+			}
+			nio_event_loop_index = (nio_event_loop_index + 1) % nio_event_loops.length;
+			return nio_event_loops[nio_event_loop_index];
+		}
 	}
 
 	/**
@@ -875,12 +1569,11 @@ public class Node {
 		try {
 			if (connected_nodes.remove(sock)) {
 				if (onDisconnect != null) {
-					Thread t = new Thread() {
+					Thread t = newThread(new Runnable() {
 						public void run() {
 							onDisconnect.trigger(sock.getInetAddress(), sock.getPort(), null);
 						}
-					};
-					t.setDaemon(false);
+					}, false);
 					t.start();
 				}
 			}
@@ -956,7 +1649,14 @@ public class Node {
 	 * @throws IOException
 	 */
 	public void listen(int port, int backlog, InetAddress bindAddr) throws IOException {
-		sock_serv = new ServerSocket(port, backlog, bindAddr);
+		if (transport_mode == TransportMode.NIO) {
+			//ͨͨ,ܵӴSocketChannel
+			ServerSocketChannel channel = ServerSocketChannel.open();
+			sock_serv = channel.socket();
+			sock_serv.bind(new InetSocketAddress(bindAddr, port), backlog);
+		} else {
+			sock_serv = new ServerSocket(port, backlog, bindAddr);
+		}
 		// >>>ʼ
 
 		logInfo("ʼ,صַ:" + sock_serv.getInetAddress().getHostAddress() + ":" + sock_serv.getLocalPort());
@@ -967,7 +1667,7 @@ public class Node {
 					try {
 						NodeSocket sock = new NodeSocket(sock_serv.accept());
 						// >>>Ϣѭ߳
-						new MessageLoopThread(sock).start();
+						startMessageLoop(sock);
 						// <<<Ϣѭ߳
 					}catch (IOException e) {
 						return;
@@ -1000,13 +1700,16 @@ public class Node {
 	 * 
 	 * @param string
 	 */
-	private void logInfo(String string) {
+	void logInfo(String string) {
 		if (debug) {
 			System.out.println("[" + new Date() + "] " + string);
 		}
 	}
 
-	private void logInfo(String string, NodeSocket sock) {
+	void logInfo(String string, NodeSocket sock) {
+		if (!debug) {
+			return;
+		}
 		if (sock == null) {
 			logInfo(string);
 		} else {
@@ -1027,11 +1730,40 @@ public class Node {
 	 * @throws MessageTooLong
 	 */
 	boolean sendTo(NodeSocket sock, Message message) throws HugeMessageException {
-		logInfo(message.getClass() + "--->>>", sock);
+		return sendTo(sock, message, isUrgent(message));
+	}
+	
+	/**
+	 * ֽ׶εϢԷڵȴ,дϲ
+	 * @param message
+	 * @return
+	 */
+	private static boolean isUrgent(Message message) {
+		return message instanceof NodesExchange || message instanceof ConnectionRefuse;
+	}
+	
+	/**
+	 * һڵ㷢Ϣ
+	 * 
+	 * @param sock
+	 * @param message
+	 * @param urgent Ϣ,д
+	 * @return ʧfalse
+	 * @throws HugeMessageException 
+	 */
+	boolean sendTo(NodeSocket sock, Message message, boolean urgent) throws HugeMessageException {
+		if (debug) {
+			logInfo(message.getClass() + "--->>>", sock);
+		}
 		try {
-			OutputStream rawOut = sock.getOutputStream();
-			rawOut.write(packMessage(message, false, netID));
-			rawOut.flush();
+			PooledBuffer data = packFrame(message, netID);
+			if (data == null) {
+				return false;
+			}
+			if (!sock.send(data, urgent)) {
+				logInfo("Ͷ", sock);
+				return false;
+			}
 			sock.touch();
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -1043,15 +1775,34 @@ public class Node {
 	}
 
 	private byte[] packMessage(Message message, boolean isBroadcast, byte[] netID) throws HugeMessageException {
-		ByteArrayOutputStream arr_out = new ByteArrayOutputStream();
+		FrameOutputStream out = encode(message, isBroadcast, netID);
+		return out == null ? null : out.toByteArray();
+	}
+	
+	/**
+	 * ǹ㲥ϢطĻ
+	 * @param message
+	 * @param netID
+	 * @return ʧܷnull
+	 * @throws HugeMessageException
+	 */
+	private PooledBuffer packFrame(Message message, byte[] netID) throws HugeMessageException {
+		FrameOutputStream out = encode(message, false, netID);
+		return out == null ? null : out.toPooled(bufferPool());
+	}
+	
+	/**
+	 * Ϣ,Ϣͷֱ֮дϢ,ٵϢ
+	 * @param message
+	 * @param isBroadcast
+	 * @param netID
+	 * @return ʧܷnull
+	 * @throws HugeMessageException
+	 */
+	private FrameOutputStream encode(Message message, boolean isBroadcast, byte[] netID) throws HugeMessageException {
+		FrameOutputStream arr_out = new FrameOutputStream();
 		DataOutputStream data_arr_out = new DataOutputStream(arr_out);
-		ByteArrayOutputStream arr_out_complete = new ByteArrayOutputStream();
 		try {
-			message.output(data_arr_out);// Ϣ
-			int msg_len = data_arr_out.size();// ȡϢ
-			if (msg_len > MAX_MESSAGE_LENGTH) {
-				throw new HugeMessageException(MAX_MESSAGE_LENGTH);
-			}
 			int msg_code = message.getCode();// Ϣ
 			int msg_type = 7;
 			if (message instanceof ConnectionRefuse ||
@@ -1064,9 +1815,7 @@ public class Node {
 				msg_type = msg_code;
 			} 
 			
-			
-			// װϢ
-			data_arr_out = new DataOutputStream(arr_out_complete);
+			// Ϣͷ
 			data_arr_out.write(msg_type | (isBroadcast ? 0x80:0));
 			if (msg_type == 7) {
 				if (Arrays.equals(netID, emptyNetID)) {
@@ -1076,18 +1825,25 @@ public class Node {
 				data_arr_out.write(netID);
 				data_arr_out.writeShort(msg_code);
 			}
-			data_arr_out.writeInt(msg_len);
+			int length_position = data_arr_out.size();
+			data_arr_out.writeInt(0);//Ϣ,Ϣ
 			if (isBroadcast) {
 				data_arr_out.writeInt(broadcast_random.nextInt(Integer.MAX_VALUE));//32λкֲͬϢ
 			}
+			int header_length = data_arr_out.size();
 			
-			arr_out.writeTo(arr_out_complete);
+			message.output(data_arr_out);// Ϣ
+			int msg_len = data_arr_out.size() - header_length;// ȡϢ
+			if (msg_len > MAX_MESSAGE_LENGTH) {
+				throw new HugeMessageException(MAX_MESSAGE_LENGTH);
+			}
+			arr_out.setInt(length_position, msg_len);
 		} catch (IOException e) {
 
 			e.printStackTrace();
 			return null;
 		}
-		return arr_out_complete.toByteArray();
+		return arr_out;
 	}
 
 
@@ -1102,25 +1858,62 @@ public class Node {
 		}
 		
 		message_loop_group.interrupt();//رϢѭ
+		for (Thread t : virtual_loop_threads) {
+			t.interrupt();
+		}
 		
-		if (heart_beater != null) {
-			heart_beater.shutdown();// ֹͣ
+		if (transport_mode == TransportMode.NIO && nio_event_loops != null) {
+			//رδNIO
+			for (NioEventLoop loop : nio_event_loops) {
+				loop.closeSessions(this);
+			}
 		}
 		
-		worker_pool.shutdown();// ̳߳
+		// ȡռеĺϲ㲥
+		bundler.cancel();
+		
+		if (heart_beater != null) {
+			heart_beater.shutdown();// ֹͣͺϲ㲥ʱ
+		}
 		
-		if (work_proof_generate_pool != null) {
-			work_proof_generate_pool.shutdownNow();
+		// ȡδɵĹ㲥
+		for (Job job : broadcast_jobs) {
+			job.cancel();
 		}
 		
+		// ȴĹ㲥
+		finishPending(outbox.clear());
+		
 		// Ͽнڵ
 		for (NodeSocket sock : connected_nodes) {
 			delConnected(sock);
 		}
+		
+		executor.shutdown();// ڵĹ̳߳
+		
+		// дس־ûȥ
+		if (duplicate_suppressor instanceof Closeable) {
+			try {
+				((Closeable) duplicate_suppressor).close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 
 		logInfo("ر");
 	}
 
+	/**
+	 * 첽̽ڵ,ܲƲ
+	 * 
+	 * @param addr
+	 * @param port
+	 * @return ̽ʱõǷ
+	 */
+	public CompletableFuture<Boolean> detectAsync(InetAddress addr, int port) {
+		return prober.probe(new InetSocketAddress(addr, port));
+	}
+
 	/**
 	 * ̽ڵ
 	 * 
@@ -6,19 +6,34 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.communicast.util.PooledBuffer;
 
 public class NodeSocket implements AutoCloseable{
 	private final Socket _sock;
+	private final SocketChannel _channel;//NIOģʽµͨ,ģʽΪnull
+	private OutboundQueue _outbound;//Ͷ,Ϊnullʱֱд
 	private final int _hash_code;
 	private final int _local_hash_code;
 	private int _last_active_time;
 	public final boolean isClient;
+	boolean added;//ڵǷѾ
+	final CompletableFuture<NodeSocket> established;//ӽ򱻾ܾرʱ
+	volatile int advertised_difficulity;//ԷĹ㲥Ѷ,0Ϊδ
+	final AtomicBoolean outbox_checked = new AtomicBoolean();//ǷѲ㲥
 	
 	NodeSocket(Socket sock, boolean client) throws SocketException {
 		_sock= sock;
+		_channel = sock.getChannel();
 		_hash_code = _sock.getInetAddress().hashCode() ^ _sock.getPort();
 		_local_hash_code = _sock.getLocalAddress().hashCode() ^ _sock.getLocalPort();
 		isClient = client;
+		established = new CompletableFuture<NodeSocket>();
 		_sock.setTcpNoDelay(true);
 		_sock.setSoTimeout(Node.connect_timeout);//Ӧʱʱ,Ĭ2
 	}
@@ -51,8 +66,58 @@ public class NodeSocket implements AutoCloseable{
 		return _sock.getOutputStream();
 	}
 	
+	SocketChannel getChannel() {
+		return _channel;
+	}
+	
+	void setOutbound(OutboundQueue outbound) {
+		_outbound = outbound;
+	}
+	
+	/**
+	 * һϢ,зͶʱֻӲ
+	 * ȡframeһ,ɻʧܺͷ
+	 * @param pooled
+	 * @param urgent Ϣ,ȴдϲ
+	 * @return Ͷfalse
+	 * @throws IOException ѹرջֱдʧ
+	 */
+	boolean send(PooledBuffer pooled, boolean urgent) throws IOException {
+		if (_outbound != null) {
+			return _outbound.offer(pooled, urgent);
+		}
+		try {
+			ByteBuffer frame = pooled.buffer();
+			OutputStream out = _sock.getOutputStream();
+			if (frame.hasArray()) {
+				out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+			} else {
+				Channels.newChannel(out).write(frame);
+			}
+			out.flush();
+		} finally {
+			pooled.release();
+		}
+		return true;
+	}
+	
+	boolean isClosed() {
+		return _sock.isClosed();
+	}
+	
+	/**
+	 * ر,ͷŷͶδдϢ
+	 * @throws IOException
+	 */
 	public void close() throws IOException {
-		_sock.close();
+		established.completeExceptionally(new SocketException("Socket closed"));
+		try {
+			_sock.close();
+		} finally {
+			if (_outbound != null) {
+				_outbound.discard();
+			}
+		}
 	}
 	
 	
@@ -0,0 +1,166 @@
+package org.communicast.net;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.communicast.util.PooledBuffer;
+
+/**
+ * ӵн緢Ͷ
+ * ߳Ӳ,ͬһʱֻһд߰˳д
+ * ǽϢںϲڻﵽֵֽǰ,һд
+ * гϢ,ддͷ
+ *
+ */
+abstract class OutboundQueue {
+	private static final int IDLE = 0;//޴дϢ
+	private static final int WAITING = 1;//ȴϲڽ
+	private static final int DRAINING = 2;//д߹
+
+	private static final ScheduledExecutorService flush_timer;//ϲڶʱ
+
+	protected final Node node;
+	protected final NodeSocket sock;
+	private final ArrayBlockingQueue<PooledBuffer> queue;
+	private final AtomicInteger state;
+	private final AtomicInteger queued_bytes;//еֽ
+	private final Runnable window_end;
+
+	static {
+		flush_timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "OUTBOUND_FLUSH_TIMER");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	OutboundQueue(Node node, NodeSocket sock, int capacity) {
+		this.node = node;
+		this.sock = sock;
+		queue = new ArrayBlockingQueue<PooledBuffer>(Math.max(1, capacity));
+		state = new AtomicInteger(IDLE);
+		queued_bytes = new AtomicInteger();
+		window_end = new Runnable() {
+			public void run() {
+				if (state.compareAndSet(WAITING, DRAINING)) {
+					drain();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Ϣ,ȡframe,ʧʱͷ
+	 * @param frame
+	 * @param urgent Ϣ,ȴϲ
+	 * @return ޷дfalse
+	 * @throws IOException ѹر
+	 */
+	boolean offer(PooledBuffer frame, boolean urgent) throws IOException {
+		if (sock.isClosed()) {
+			frame.release();
+			throw new SocketException("Socket closed");
+		}
+		int remaining = frame.buffer().remaining();
+		if (!queue.offer(frame)) {
+			frame.release();
+			return false;
+		}
+		int bytes = queued_bytes.addAndGet(remaining);
+		if (sock.isClosed()) {
+			//ʱӱر,رʱչ
+			discard();
+			throw new SocketException("Socket closed");
+		}
+		boolean now = urgent || Node.write_coalesce_delay <= 0 || bytes >= Node.write_coalesce_bytes;
+
+		if (now) {
+			if (state.compareAndSet(IDLE, DRAINING) || state.compareAndSet(WAITING, DRAINING)) {
+				return drain();
+			}
+		} else if (state.compareAndSet(IDLE, WAITING)) {
+			flush_timer.schedule(window_end, Node.write_coalesce_delay, TimeUnit.MILLISECONDS);
+		}
+		return true;
+	}
+
+	/**
+	 * д߿ʼд
+	 */
+	protected abstract void schedule();
+
+	/**
+	 * д,ִѹرʱдʧܲر
+	 * @return ųɹtrue
+	 */
+	private boolean drain() {
+		try {
+			schedule();
+			return true;
+		} catch (RejectedExecutionException e) {
+			fail();
+			return false;
+		}
+	}
+
+	protected PooledBuffer poll() {
+		PooledBuffer frame = queue.poll();
+		if (frame != null) {
+			queued_bytes.addAndGet(-frame.buffer().remaining());
+		}
+		return frame;
+	}
+
+	/**
+	 * дպͷдȨ,ڼϢȡ
+	 * @return Ҫдtrue
+	 */
+	protected boolean release() {
+		state.set(IDLE);
+		return !queue.isEmpty() && state.compareAndSet(IDLE, DRAINING);
+	}
+
+	/**
+	 * ¼һд
+	 * @param frames Ϣ
+	 * @param bytes ֽ
+	 */
+	protected void written(int frames, long bytes) {
+		node.getOutboundStats().record(frames, bytes);
+	}
+
+	/**
+	 * ޷дʱдȨ,ټд
+	 */
+	protected void abandon() {
+		state.set(IDLE);
+	}
+
+	/**
+	 * ͷŶеȫϢ,ӹرʱ
+	 */
+	void discard() {
+		PooledBuffer frame;
+		while ((frame = poll()) != null) {
+			frame.release();
+		}
+	}
+
+	/**
+	 * дʧ,Ƴڵ
+	 */
+	protected void fail() {
+		discard();
+		node.logInfo("ڵ㱻Ƴ", sock);
+		node.delConnected(sock);
+	}
+}
@@ -0,0 +1,65 @@
+package org.communicast.net;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ͳ,ڹ۲дϲЧ
+ *
+ */
+public class OutboundStats {
+	private final LongAdder batches = new LongAdder();//д
+	private final LongAdder frames = new LongAdder();//Ϣ
+	private final LongAdder bytes = new LongAdder();//ֽ
+
+	void record(int frame_num, long byte_num) {
+		batches.increment();
+		frames.add(frame_num);
+		bytes.add(byte_num);
+	}
+
+	/**
+	 * д,ÿζӦһϵͳ
+	 * @return
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * дϢ
+	 * @return
+	 */
+	public long getFrames() {
+		return frames.sum();
+	}
+
+	/**
+	 * дֽ
+	 * @return
+	 */
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	/**
+	 * ƽÿдϢ
+	 * @return
+	 */
+	public double getAverageBatchFrames() {
+		long n = getBatches();
+		return n == 0 ? 0 : (double) getFrames() / n;
+	}
+
+	/**
+	 * ƽÿдֽ
+	 * @return
+	 */
+	public double getAverageBatchBytes() {
+		long n = getBatches();
+		return n == 0 ? 0 : (double) getBytes() / n;
+	}
+
+	public String toString() {
+		return "batches:" + getBatches() + ",frames:" + getFrames() + ",bytes:" + getBytes();
+	}
+}
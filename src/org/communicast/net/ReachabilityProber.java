@@ -0,0 +1,198 @@
+package org.communicast.net;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * 첽ڵͨ̽
+ * ܲͬһ(IPv4 /24,IPv6 /48),̽
+ *
+ */
+class ReachabilityProber {
+	private static final int CACHE_PRUNE_SIZE = 10000;//泬ʱڽ
+
+	private final Node node;
+	private final Executor executor;
+	private final ConcurrentHashMap<InetSocketAddress, Result> cache;//̽
+	private final ConcurrentHashMap<InetSocketAddress, CompletableFuture<Boolean>> pending;//Ŷӻе̽
+	private final ArrayDeque<InetSocketAddress> waiting;//ȴĵַ
+	private final HashMap<Long, Integer> subnet_running;//νе̽
+	private int running;//е̽
+
+	/**
+	 * ̽
+	 */
+	private static class Result {
+		final boolean reachable;
+		final long expire;//ʱ,
+
+		Result(boolean reachable, long expire) {
+			this.reachable = reachable;
+			this.expire = expire;
+		}
+	}
+
+	ReachabilityProber(Node node, Executor executor) {
+		this.node = node;
+		this.executor = executor;
+		cache = new ConcurrentHashMap<InetSocketAddress, Result>();
+		pending = new ConcurrentHashMap<InetSocketAddress, CompletableFuture<Boolean>>();
+		waiting = new ArrayDeque<InetSocketAddress>();
+		subnet_running = new HashMap<Long, Integer>();
+	}
+
+	/**
+	 * ѯ̽
+	 * @param addr
+	 * @return Ч淵null
+	 */
+	Boolean cached(InetSocketAddress addr) {
+		Result result = cache.get(addr);
+		if (result == null || result.expire < System.currentTimeMillis()) {
+			return null;
+		}
+		return result.reachable;
+	}
+
+	/**
+	 * ̽ڵ,
+	 * @param addr
+	 * @return ̽ʱõǷ
+	 */
+	CompletableFuture<Boolean> probe(InetSocketAddress addr) {
+		Boolean reachable = cached(addr);
+		if (reachable != null) {
+			return CompletableFuture.completedFuture(reachable);
+		}
+
+		CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+		CompletableFuture<Boolean> existing = pending.putIfAbsent(addr, future);
+		if (existing != null) {
+			//ͬһַֻ̽һ
+			return existing;
+		}
+
+		synchronized (this) {
+			waiting.add(addr);
+		}
+		dispatch();
+		return future;
+	}
+
+	/**
+	 * ڲȴе̽
+	 * ִܾʱ(ڵѹر)õַ,ȴߵõɴ
+	 */
+	private void dispatch() {
+		InetSocketAddress rejected = null;
+		synchronized (this) {
+			Iterator<InetSocketAddress> it = waiting.iterator();
+			while (running < Node.probe_concurrency && it.hasNext()) {
+				InetSocketAddress addr = it.next();
+				Long subnet = subnet(addr.getAddress());
+				Integer subnet_num = subnet_running.get(subnet);
+				if (subnet_num == null) {
+					subnet_num = 0;
+				}
+				if (subnet_num >= Node.probe_subnet_concurrency) {
+					continue;
+				}
+
+				it.remove();
+				running++;
+				subnet_running.put(subnet, subnet_num + 1);
+				try {
+					executor.execute(new Runnable() {
+						public void run() {
+							boolean reachable = false;
+							try {
+								reachable = node.detect(addr.getAddress(), addr.getPort());
+							} finally {
+								finish(addr, subnet, reachable);
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					running--;
+					release(subnet);
+					rejected = addr;
+					break;
+				}
+			}
+		}
+
+		//,صٴη̽
+		if (rejected != null) {
+			CompletableFuture<Boolean> future = pending.remove(rejected);
+			if (future != null) {
+				future.complete(false);
+			}
+		}
+	}
+	
+	/**
+	 * νе̽,
+	 * @param subnet
+	 */
+	private void release(Long subnet) {
+		int subnet_num = subnet_running.get(subnet) - 1;
+		if (subnet_num == 0) {
+			subnet_running.remove(subnet);
+		} else {
+			subnet_running.put(subnet, subnet_num);
+		}
+	}
+
+	/**
+	 * ̽
+	 * @param addr
+	 * @param subnet
+	 * @param reachable
+	 */
+	private void finish(InetSocketAddress addr, Long subnet, boolean reachable) {
+		long now = System.currentTimeMillis();
+		if (cache.size() > CACHE_PRUNE_SIZE) {
+			cache.values().removeIf(new Predicate<Result>() {
+				public boolean test(Result result) {
+					return result.expire < now;
+				}
+			});
+		}
+		int ttl = reachable ? Node.probe_cache_ttl : Node.probe_negative_cache_ttl;
+		cache.put(addr, new Result(reachable, now + ttl * 1000L));
+
+		synchronized (this) {
+			running--;
+			release(subnet);
+		}
+		dispatch();
+
+		CompletableFuture<Boolean> future = pending.remove(addr);
+		if (future != null) {
+			future.complete(reachable);
+		}
+	}
+
+	/**
+	 * ȡõַ,IPv4ȡǰ24λ,IPv6ȡǰ48λ
+	 * @param addr
+	 * @return
+	 */
+	private static Long subnet(InetAddress addr) {
+		byte[] bytes = addr.getAddress();
+		int prefix = bytes.length == 4 ? 3 : 6;
+		long subnet = bytes.length;
+		for (int i = 0; i < prefix; i++) {
+			subnet = subnet << 8 | bytes[i] & 0xff;
+		}
+		return subnet;
+	}
+}
@@ -4,6 +4,7 @@ import java.net.InetAddress;
 
 import org.communicast.exception.HugeMessageException;
 import org.communicast.msg.Message;
+import org.communicast.util.PooledBuffer;
 
 /**
  * ϢӦ
@@ -13,9 +14,10 @@ import org.communicast.msg.Message;
 public final class Responser {
 	private final Node _node;
 	private final NodeSocket _sock;
-	private final byte[] _msg;
+	private final PooledBuffer _msg;
+	private boolean _finished;//onReceiveѷ,_msgͷ
 	
-	Responser(Node node, NodeSocket sock, byte[] rawMessage) {
+	Responser(Node node, NodeSocket sock, PooledBuffer rawMessage) {
 		_node = node;
 		_sock = sock;
 		_msg = rawMessage;
@@ -35,11 +37,29 @@ public final class Responser {
 	}
 	
 	/**
-	 * תϢ
+	 * ظϢ
+	 * @param message
+	 * @param urgent д,ȴϢϲ
+	 * @return
+	 * @throws HugeMessageException 
+	 */
+	public boolean reply(Message message, boolean urgent) throws HugeMessageException {
+		if (_sock == null) {
+			return false;
+		}
+		return _node.sendTo(_sock, message, urgent);
+	}
+	
+	/**
+	 * תϢ,ֻonReceiveǰ
+	 * ԭʼϢonReceiveغͷŻػ,֮׳IllegalStateException
 	 * @param message
 	 * @return
 	 */
-	public int forward() {
+	public synchronized int forward() {
+		if (_finished) {
+			throw new IllegalStateException("forward() must be called before onReceive returns");
+		}
 		if (_sock !=null && _msg != null) {
 			return _node.flood(_msg, _sock);
 		} else {
@@ -47,6 +67,13 @@ public final class Responser {
 		}
 	}
 	
+	/**
+	 * onReceive,ͷԭʼϢǰ
+	 */
+	synchronized void finish() {
+		_finished = true;
+	}
+	
 	
 	/**
 	 * ȡԶ̵ַ
@@ -0,0 +1,68 @@
+package org.communicast.net;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executor;
+
+import org.communicast.util.PooledBuffer;
+
+/**
+ * ģʽķͶ,ִедsocket
+ *
+ */
+class StreamOutbound extends OutboundQueue implements Runnable {
+	private final Executor executor;
+	private OutputStream out;//,һϢһд
+	private WritableByteChannel channel;//дֱӻ,ڲһ
+
+	StreamOutbound(Node node, NodeSocket sock, int capacity, Executor executor) {
+		super(node, sock, capacity);
+		this.executor = executor;
+	}
+
+	@Override
+	protected void schedule() {
+		executor.execute(this);
+	}
+
+	@Override
+	public void run() {
+		try {
+			if (out == null) {
+				out = new BufferedOutputStream(sock.getOutputStream(), Math.max(1, Node.write_coalesce_bytes));
+			}
+			do {
+				PooledBuffer pooled;
+				int frames = 0;
+				long bytes = 0;
+				while ((pooled = poll()) != null) {
+					try {
+						ByteBuffer frame = pooled.buffer();
+						frames++;
+						bytes += frame.remaining();
+						if (frame.hasArray()) {
+							out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+						} else {
+							if (channel == null) {
+								channel = Channels.newChannel(out);
+							}
+							while (frame.hasRemaining()) {
+								channel.write(frame);
+							}
+						}
+					} finally {
+						pooled.release();
+					}
+				}
+				out.flush();
+				written(frames, bytes);
+			} while (release());
+		} catch (IOException e) {
+			fail();
+		}
+	}
+}
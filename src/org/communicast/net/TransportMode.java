@@ -0,0 +1,11 @@
+package org.communicast.net;
+
+/**
+ * ڵ㴫ģʽ
+ *
+ */
+public enum TransportMode {
+	BLOCKING,//ģʽ,ÿһϢѭ߳
+	VIRTUAL_THREAD,//ģʽ,Ϣѭص¼߳,Java 21
+	NIO;//ģʽ,¼ѭ߳ͨSelectorȫ
+}
@@ -0,0 +1,100 @@
+package org.communicast.test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ܲԹ÷
+ *
+ */
+class Bench {
+
+	/**
+	 * ¼߳ۼƷֽ
+	 * @return ߳idֽ,֧ʱnull
+	 */
+	static Map<Long, Long> allocation() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		long[] ids = bean.getAllThreadIds();
+		long[] bytes = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(ids);
+		Map<Long, Long> snapshot = new HashMap<Long, Long>();
+		for (int i = 0; i < ids.length; i++) {
+			if (bytes[i] >= 0) {
+				snapshot.put(ids[i], bytes[i]);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Լ¼ֽ,ڼ̲߳
+	 * @param snapshot allocation()Ľ
+	 * @return ֧ʱ-1
+	 */
+	static long allocatedSince(Map<Long, Long> snapshot) {
+		Map<Long, Long> now = allocation();
+		if (snapshot == null || now == null) {
+			return -1;
+		}
+		long total = 0;
+		for (Map.Entry<Long, Long> entry : now.entrySet()) {
+			Long before = snapshot.get(entry.getKey());
+			total += entry.getValue() - (before == null ? 0 : before);
+		}
+		return total;
+	}
+
+	/**
+	 * ۼƴ
+	 * @return
+	 */
+	static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * ۼƺʱ,
+	 * @return
+	 */
+	static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+
+	/**
+	 * ʹõĶڴ,ڹƶռ
+	 * @return ֽ
+	 */
+	static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	/**
+	 * ÿ
+	 * @param count
+	 * @param nanos ʱ,
+	 * @return
+	 */
+	static long perSecond(long count, long nanos) {
+		return nanos <= 0 ? 0 : count * 1000000000L / nanos;
+	}
+}
@@ -0,0 +1,246 @@
+package org.communicast.test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.communicast.collection.BloomFilter;
+
+/**
+ * ¡ܲ,ԭеByte[]λͬλʵֶԱ
+ * ߳ͬʱ16ֽϢʶ,ÿӴ͹ռõĶڴ
+ * ǰʵֱַrecord(֤ժҪֱΪ)add(ϣ)
+ * :[ֽ] [ÿ̴߳] [߳...]
+ *
+ */
+public class BloomFilterBench {
+
+	/**
+	 * Ĺ
+	 */
+	private interface Target {
+		/**
+		 * 
+		 * @param map_size
+		 * @return һʶĲ
+		 */
+		Adder create(int map_size) throws Exception;
+	}
+
+	/**
+	 * һʶ
+	 */
+	private interface Adder {
+		boolean add(byte[] id);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int map_size = args.length > 0 ? Integer.parseInt(args[0]) : 1024 * 1024;
+		int ops = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int[] threads;
+		if (args.length > 2) {
+			threads = new int[args.length - 2];
+			for (int i = 2; i < args.length; i++) {
+				threads[i - 2] = Integer.parseInt(args[i]);
+			}
+		} else {
+			threads = new int[] {1, Runtime.getRuntime().availableProcessors()};
+		}
+
+		String[] names = {"ɰByte[]", "ǰrecord", "ǰadd"};
+		Target[] targets = {
+			new Target() {
+				public Adder create(int map_size) throws Exception {
+					LegacyBloomFilter filter = new LegacyBloomFilter(map_size, 0.5);
+					return new Adder() {
+						public boolean add(byte[] id) {
+							return filter.add(id);
+						}
+					};
+				}
+			},
+			new Target() {
+				public Adder create(int map_size) throws Exception {
+					BloomFilter filter = new BloomFilter(map_size, 0.5);
+					return new Adder() {
+						public boolean add(byte[] id) {
+							return filter.record(id);
+						}
+					};
+				}
+			},
+			new Target() {
+				public Adder create(int map_size) throws Exception {
+					BloomFilter filter = new BloomFilter(map_size, 0.5);
+					return new Adder() {
+						public boolean add(byte[] id) {
+							return filter.add(id);
+						}
+					};
+				}
+			}
+		};
+
+		System.out.println(":" + map_size + "ֽ ÿ̴߳:" + ops);
+		for (int i = 0; i < targets.length; i++) {
+			long before = Bench.usedHeap();
+			Adder adder = targets[i].create(map_size);
+			long memory = Bench.usedHeap() - before;
+			System.out.println(names[i] + " ռöڴ:" + (memory >> 10) + "KB");
+			//Ԥ
+			run(adder, 1, ops / 4);
+			for (int n : threads) {
+				System.out.println("  " + n + "߳: " + run(adder, n, ops) + "/");
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * ߳ͬʱ
+	 * @return ÿӴ
+	 */
+	private static long run(Adder adder, int threads, int ops) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			Random random = new Random();
+			Thread t = new Thread() {
+				public void run() {
+					byte[] id = new byte[16];
+					try {
+						start.await();
+						for (int j = 0; j < ops; j++) {
+							random.nextBytes(id);
+							adder.add(id);
+						}
+					} catch (InterruptedException e) {
+					} finally {
+						done.countDown();
+					}
+				}
+			};
+			t.setDaemon(true);
+			t.start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		return Bench.perSecond((long) ops * threads, System.nanoTime() - begin);
+	}
+
+	/**
+	 * ԭеĲ¡:Byte[]λ,SHA-512ȡ,λʱByte,д
+	 */
+	private static class LegacyBloomFilter {
+		private static final int MAP_CHECKPOINT_NUM = 6;
+
+		private final int critical_size;
+		private final int check_block_len;
+		private final Byte[] map;
+		private final AtomicInteger map_length;
+		private final ReentrantReadWriteLock lock;
+		private final Condition condition_full;
+		private final byte[] collision_mask;
+		private final int mask = ~0 << 8;
+
+		LegacyBloomFilter(int map_size, double loadFactor) {
+			int bit_map_size = map_size * 8;
+			check_block_len = (int) Math.ceil(Math.log(bit_map_size) / Math.log(2));
+			critical_size = (int) (loadFactor * bit_map_size);
+			collision_mask = new byte[64];
+			new Random().nextBytes(collision_mask);
+			map_length = new AtomicInteger();
+			lock = new ReentrantReadWriteLock();
+			condition_full = lock.writeLock().newCondition();
+			Thread clear_thread = new Thread() {
+				public void run() {
+					if (!lock.writeLock().tryLock()) {
+						return;
+					}
+					do {
+						condition_full.awaitUninterruptibly();
+						clear();
+					} while (true);
+				}
+			};
+			map = new Byte[bit_map_size / 8];
+			clear();
+			clear_thread.setDaemon(true);
+			clear_thread.start();
+		}
+
+		private byte[] appendMaskBytes(byte[] buffer) {
+			byte[] padded = new byte[buffer.length + collision_mask.length];
+			System.arraycopy(buffer, 0, padded, 0, buffer.length);
+			System.arraycopy(collision_mask, 0, padded, buffer.length, collision_mask.length);
+			return padded;
+		}
+
+		boolean add(byte[] buffer) {
+			try {
+				buffer = MessageDigest.getInstance("SHA-512").digest(appendMaskBytes(buffer));
+				int current_byte = 0;
+				int bit_offset = 0;
+				int consumed = 0;
+				int to_consume_bits;
+				int map_position = 0;
+				int check_byte;
+				int check_bit;
+				int current_consume_index = 0;
+				boolean exists = true;
+				boolean full = false;
+
+				lock.readLock().lock();
+				do {
+					to_consume_bits = Math.min(8 - bit_offset, check_block_len - current_consume_index);
+					int mid = (buffer[current_byte] << bit_offset & mask >> to_consume_bits & 0xff) >> (8 - to_consume_bits) << current_consume_index;
+					map_position |= mid;
+					consumed += to_consume_bits;
+					bit_offset += to_consume_bits;
+					if (bit_offset > 7) {
+						bit_offset %= 8;
+						current_byte++;
+					}
+					current_consume_index = consumed % check_block_len;
+
+					if (current_consume_index == 0) {
+						long pointer = Integer.toUnsignedLong(map_position);
+						check_byte = (int) (pointer / 8);
+						check_bit = (int) (pointer % 8);
+						if ((map[check_byte] << check_bit & 0x80) != 0x80) {
+							exists = false;
+							synchronized (map[check_byte]) {
+								map[check_byte] = (byte) (map[check_byte] | 0x80 >> check_bit);
+							}
+							full = full || map_length.incrementAndGet() == critical_size;
+						}
+						map_position = 0;
+					}
+				} while (consumed < check_block_len * MAP_CHECKPOINT_NUM);
+				lock.readLock().unlock();
+
+				if (full) {
+					lock.writeLock().lock();
+					condition_full.signalAll();
+					lock.writeLock().unlock();
+				}
+				return !exists;
+			} catch (NoSuchAlgorithmException e) {
+				e.printStackTrace();
+			}
+			return true;
+		}
+
+		private void clear() {
+			map_length.set(0);
+			for (int i = 0; i < map.length; i++) {
+				map[i] = 0;
+			}
+		}
+	}
+}
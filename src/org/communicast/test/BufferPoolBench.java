@@ -0,0 +1,117 @@
+package org.communicast.test;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.communicast.util.BufferPool;
+import org.communicast.util.PooledBuffer;
+
+/**
+ * Ϣܲ
+ * ߳ģշϢ:Ϣȷ仺岢д,һ;,ͷ
+ * ֱʹֱӷ(ԭеnew byte[])ڻغͶ⻺
+ * ÿÿηֽմͺʱ
+ * :[߳] [ÿ̴߳] [Ϣ] [;]
+ *
+ */
+public class BufferPoolBench {
+
+	/**
+	 * ䷽ʽ
+	 */
+	private enum Allocator {
+		UNPOOLED,//ÿϢnew byte[]
+		HEAP_POOL,//ڻ
+		DIRECT_POOL;//⻺
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int ops = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+		int max_size = args.length > 2 ? Integer.parseInt(args[2]) : 16 * 1024;
+		int in_flight = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+		System.out.println("߳:" + threads + " ÿ̴߳:" + ops + " Ϣ:" + max_size + " ;:" + in_flight);
+		for (int round = 0; round < 3; round++) {
+			for (Allocator allocator : Allocator.values()) {
+				//һԤ
+				run((round == 0 ? "Ԥ" : "") + allocator, allocator, threads, round == 0 ? ops / 4 : ops, max_size, in_flight);
+			}
+		}
+	}
+
+	private static void run(String name, Allocator allocator, int threads, int ops, int max_size, int in_flight) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		CountDownLatch measured = new CountDownLatch(1);
+		for (int i = 0; i < threads; i++) {
+			final int seed = i;
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						start.await();
+						work(allocator, ops, max_size, in_flight, seed);
+						done.countDown();
+						//ͳƷʱ߳
+						measured.await();
+					} catch (InterruptedException e) {
+					}
+				}
+			};
+			t.setDaemon(true);
+			t.start();
+		}
+		Thread.sleep(100);
+
+		Map<Long, Long> allocation = Bench.allocation();
+		long gc_count = Bench.gcCount();
+		long gc_millis = Bench.gcMillis();
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long nanos = System.nanoTime() - begin;
+		long allocated = Bench.allocatedSince(allocation);
+		measured.countDown();
+		long total = (long) ops * threads;
+
+		System.out.println(name + ": " + Bench.perSecond(total, nanos) + "/, "
+				+ (allocated < 0 ? "-" : allocated / total) + "ֽ/, " + (allocated >> 20) + "MB, "
+				+ "GC " + (Bench.gcCount() - gc_count) + " " + (Bench.gcMillis() - gc_millis) + "ms");
+	}
+
+	/**
+	 * һ̵߳Ĺ,Ϣ64ֽڵmax_size֮,ϢӶ
+	 */
+	private static void work(Allocator allocator, int ops, int max_size, int in_flight, int seed) {
+		Random random = new Random(seed);
+		byte[] source = new byte[max_size];
+		Object[] ring = new Object[in_flight];
+		BufferPool pool = allocator == Allocator.DIRECT_POOL ? BufferPool.DIRECT : BufferPool.HEAP;
+		for (int i = 0; i < ops; i++) {
+			int size = 64 + (int) (Math.pow(random.nextDouble(), 3) * (max_size - 64));
+			int slot = i % in_flight;
+			if (allocator == Allocator.UNPOOLED) {
+				byte[] buffer = new byte[size];
+				System.arraycopy(source, 0, buffer, 0, size);
+				ring[slot] = buffer;
+			} else {
+				if (ring[slot] != null) {
+					((PooledBuffer) ring[slot]).release();
+				}
+				PooledBuffer pooled = pool.allocate(size);
+				ByteBuffer buffer = pooled.buffer();
+				buffer.put(source, 0, size);
+				ring[slot] = pooled;
+			}
+		}
+		if (allocator != Allocator.UNPOOLED) {
+			for (Object pooled : ring) {
+				if (pooled != null) {
+					((PooledBuffer) pooled).release();
+				}
+			}
+		}
+	}
+}
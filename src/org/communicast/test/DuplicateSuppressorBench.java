@@ -0,0 +1,138 @@
+package org.communicast.test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.communicast.collection.BloomFilter;
+import org.communicast.collection.ConfirmedBloomFilter;
+import org.communicast.collection.CuckooFilter;
+import org.communicast.collection.DuplicateSuppressor;
+import org.communicast.collection.ExpiringIdSet;
+import org.communicast.collection.MappedBloomFilter;
+import org.communicast.util.Murmur3;
+
+/**
+ * 㲥ȥԱ:¡ڴ
+ * ģⷺ:ÿϢ״ε,ٴڵظɴ,ظ״Ϣ
+ * :״εﱻΪظı;©:ظﱻΪϢı
+ * 水ÿ,1.5Ϣ,һֻ
+ * ̶Сͳ־ûĲ¡ڵĬһλһʱֻ,λС밴ʴͬ
+ * ڴΪнʱռõĶڴ,־û¡λӳļ,
+ * :[ÿ] [ÿϢظ] [ظ] [¡Ŀ]
+ *
+ */
+public class DuplicateSuppressorBench {
+
+	/**
+	 * 
+	 */
+	private interface Engine {
+		DuplicateSuppressor create() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int duplicates = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int max_lag = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		double false_positive_rate = args.length > 3 ? Double.parseDouble(args[3]) : 0.001;
+		File mapped_file = File.createTempFile("dedup", ".bin");
+		mapped_file.deleteOnExit();
+		//create(capacity, false_positive_rate)λС
+		int map_size = (int) Math.ceil(-capacity * Math.log(false_positive_rate) / (Math.log(2) * Math.log(2)) / 8);
+
+		String[] names = {"ʲ¡", "̶С¡", "", "ȷ", "¡+ȷȷ", "־û¡"};
+		Engine[] engines = {
+			new Engine() {
+				public DuplicateSuppressor create() {
+					return BloomFilter.create(capacity, false_positive_rate, 0);
+				}
+			},
+			new Engine() {
+				public DuplicateSuppressor create() throws Exception {
+					return new BloomFilter(map_size, 0.5, capacity, 0);
+				}
+			},
+			new Engine() {
+				public DuplicateSuppressor create() {
+					return new CuckooFilter(capacity, 3600);
+				}
+			},
+			new Engine() {
+				public DuplicateSuppressor create() {
+					return new ExpiringIdSet(capacity, 0);
+				}
+			},
+			new Engine() {
+				public DuplicateSuppressor create() {
+					return new ConfirmedBloomFilter(BloomFilter.create(capacity, false_positive_rate, 0), new ExpiringIdSet(capacity, 0));
+				}
+			},
+			new Engine() {
+				public DuplicateSuppressor create() throws Exception {
+					return new MappedBloomFilter(mapped_file, map_size, 0.5, 0);
+				}
+			}
+		};
+
+		System.out.println("ÿ:" + capacity + " ظ:" + duplicates + " :" + max_lag + " Ŀ:" + false_positive_rate);
+		for (int i = 0; i < engines.length; i++) {
+			//Ԥ
+			run(engines[i].create(), capacity, duplicates, max_lag);
+
+			long before = Bench.usedHeap();
+			DuplicateSuppressor engine = engines[i].create();
+			long[] result = run(engine, capacity, duplicates, max_lag);
+			long memory = Bench.usedHeap() - before;
+			long calls = result[0], nanos = result[1], false_drops = result[2], missed = result[3];
+			long firsts = capacity * 3L / 2;
+			System.out.printf("%s: %d/, ڴ%dKB, %.5f%%, ©%.5f%%%n", names[i], Bench.perSecond(calls, nanos),
+					memory >> 10, false_drops * 100.0 / firsts, missed * 100.0 / Math.max(1, calls - firsts));
+			if (engine instanceof MappedBloomFilter) {
+				((MappedBloomFilter) engine).close();
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * 1.5Ϣظ
+	 * @return ô,ʱ,,©
+	 */
+	private static long[] run(DuplicateSuppressor engine, int capacity, int duplicates, int max_lag) {
+		byte[] id = new byte[DuplicateSuppressor.ID_LENGTH];
+		ByteBuffer writer = ByteBuffer.wrap(id).order(ByteOrder.LITTLE_ENDIAN);
+		long seed = System.nanoTime();
+		long calls = 0, false_drops = 0, missed = 0;
+		long total = capacity * 3L / 2;
+		long begin = System.nanoTime();
+		for (long i = 0; i < total; i++) {
+			setId(writer, seed, i);
+			calls++;
+			if (!engine.record(id)) {
+				false_drops++;
+			}
+			//ǰϢڵظ
+			for (int d = 1; d <= duplicates; d++) {
+				long lag = d * (long) max_lag / duplicates;
+				if (i < lag) {
+					break;
+				}
+				setId(writer, seed, i - lag);
+				calls++;
+				if (engine.record(id)) {
+					missed++;
+				}
+			}
+		}
+		return new long[] {calls, System.nanoTime() - begin, false_drops, missed};
+	}
+
+	/**
+	 * nϢıʶ,൱ڹ֤MD5ժҪ
+	 */
+	private static void setId(ByteBuffer writer, long seed, long n) {
+		writer.putLong(0, Murmur3.fmix64(seed + n));
+		writer.putLong(8, Murmur3.fmix64(~seed - n));
+	}
+}
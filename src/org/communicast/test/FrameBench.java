@@ -0,0 +1,335 @@
+package org.communicast.test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.communicast.collection.DuplicateSuppressor;
+import org.communicast.msg.HeartBeat;
+import org.communicast.msg.Message;
+import org.communicast.msg.NodesExchange;
+import org.communicast.msg.Registry;
+import org.communicast.net.Node;
+import org.communicast.net.Responser;
+import org.communicast.net.TransportMode;
+import org.communicast.util.WorkProof;
+
+/**
+ * Ϣܲ
+ * ͬһι㲥ػӷֱ𽻸ڵϢѭ;ɰϢѭ
+ * ɰϢѭ:52ֽڻ,mark/resetضϢͷ,ÿ㲥Ϣ塢nonceϢ
+ * ߶У鹤Ϣ̳߳ػص,ȥ
+ * ÿϢÿϢֽ(߳)
+ * :[Ϣ] [Ϣֽ] [ģʽ]
+ *
+ */
+public class FrameBench {
+	private static final String NETWORK = "bench net";
+	private static final int BENCH_CODE = 0x7F01;
+	private static final byte[] HANDSHAKE_FLAG = "COMMUNICAST".getBytes();
+	private static volatile CountDownLatch received;
+
+	/**
+	 * Ϣ,յ
+	 */
+	public static class BenchMessage implements Message {
+		private byte[] body;
+
+		public BenchMessage() {
+		}
+
+		@Override
+		public int getCode() {
+			return BENCH_CODE;
+		}
+
+		@Override
+		public void onReceive(Responser respon) {
+			received.countDown();
+		}
+
+		@Override
+		public void output(DataOutputStream out) throws IOException {
+			out.write(body);
+		}
+
+		@Override
+		public void input(DataInputStream in, int len) throws IOException {
+			body = new byte[len];
+			in.readFully(body);
+		}
+	}
+
+	/**
+	 * һ
+	 */
+	private interface Receiver {
+		/**
+		 * 
+		 * @return ӵĿͻsocket
+		 */
+		Socket connect() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int body_size = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		TransportMode mode = args.length > 2 ? TransportMode.valueOf(args[2]) : TransportMode.BLOCKING;
+
+		Registry.registerMessage(new BenchMessage());
+		// Ҫ,nonceΪ
+		Node.broadcast_difficulity = 0;
+		Node.broadcast_difficulity_min = 0;
+		Node.broadcast_difficulity_max = 0;
+
+		Node node = new Node(NETWORK, mode);
+		node.setDuplicateSuppressor(new DuplicateSuppressor() {
+			public boolean record(byte[] id) {
+				return true;
+			}
+		});
+		ServerSocket probe = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		int port = probe.getLocalPort();
+		probe.close();
+		Thread listen = new Thread() {
+			public void run() {
+				try {
+					node.listen(port, 50, InetAddress.getLoopbackAddress());
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		listen.setDaemon(true);
+		listen.start();
+		Thread.sleep(500);
+
+		Receiver current = new Receiver() {
+			public Socket connect() throws IOException {
+				return new Socket(InetAddress.getLoopbackAddress(), port);
+			}
+		};
+		Receiver legacy = new Receiver() {
+			public Socket connect() throws IOException {
+				ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+				Thread loop = new Thread() {
+					public void run() {
+						try (Socket sock = server.accept()) {
+							server.close();
+							legacyLoop(sock);
+						} catch (EOFException e) {
+							// 
+						} catch (Exception e) {
+							e.printStackTrace();
+						}
+					}
+				};
+				loop.setDaemon(true);
+				loop.start();
+				return new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+			}
+		};
+
+		byte[] stream = encodeStream(node, frames, body_size);
+		System.out.println("Ϣ:" + frames + " Ϣ:" + body_size + "ֽ ģʽ:" + mode);
+		for (int round = 0; round < 3; round++) {
+			//һԤ
+			run(round == 0 ? "Ԥȵǰ" : "ǰ", current, stream, frames);
+			run(round == 0 ? "ԤȾɰ" : "ɰ", legacy, stream, frames);
+		}
+		node.shutdown();
+		System.exit(0);
+	}
+
+	/**
+	 * ȴȫϢص
+	 * @param name
+	 * @param receiver
+	 * @param stream
+	 * @param frames
+	 * @throws Exception
+	 */
+	private static void run(String name, Receiver receiver, byte[] stream, int frames) throws Exception {
+		received = new CountDownLatch(frames);
+		Socket sock = receiver.connect();
+		// Է
+		InputStream in = sock.getInputStream();
+		Thread drain = new Thread() {
+			public void run() {
+				byte[] discard = new byte[4096];
+				try {
+					while (in.read(discard) >= 0) {
+					}
+				} catch (IOException e) {
+				}
+			}
+		};
+		drain.setDaemon(true);
+		drain.start();
+
+		Map<Long, Long> allocation = Bench.allocation();
+		long start = System.nanoTime();
+		OutputStream out = sock.getOutputStream();
+		out.write(stream);
+		out.flush();
+		if (!received.await(60, TimeUnit.SECONDS)) {
+			sock.close();
+			System.out.println(name + ": ʱ,յ" + (frames - received.getCount()) + "");
+			return;
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = Bench.allocatedSince(allocation);
+		sock.close();
+
+		System.out.println(name + ": " + Bench.perSecond(frames, nanos) + "/, " + (allocated < 0 ? "-" : allocated / frames) + "ֽ/");
+	}
+
+	/**
+	 * :Эͷڵ㽻㲥
+	 * @param node
+	 * @param frames
+	 * @param body_size
+	 * @return
+	 * @throws Exception
+	 */
+	private static byte[] encodeStream(Node node, int frames, int body_size) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(frames * (body_size + 32));
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(HANDSHAKE_FLAG);
+
+		ByteArrayOutputStream exchange = new ByteArrayOutputStream();
+		new NodesExchange(node, 0).output(new DataOutputStream(exchange));
+		out.write(2);
+		out.writeInt(exchange.size());
+		exchange.writeTo(out);
+
+		byte[] net_id = MessageDigest.getInstance("MD5").digest(NETWORK.getBytes());
+		byte[] body = new byte[body_size];
+		for (int i = 0; i < frames; i++) {
+			out.write(7 | 0x80);
+			out.write(net_id);
+			out.writeShort(BENCH_CODE);
+			out.writeInt(body_size);
+			out.writeInt(i);//к
+			out.write(body);
+			out.write(0);//nonce
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * ɰϢѭ,ԭзʽȡУ鲢ص,ֻõϢ
+	 * @param sock
+	 * @throws Exception
+	 */
+	private static void legacyLoop(Socket sock) throws Exception {
+		ExecutorService worker_pool = Executors.newCachedThreadPool();
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(sock.getInputStream(), 52));
+			sock.getOutputStream().write(HANDSHAKE_FLAG);
+
+			byte[] buffer = new byte[HANDSHAKE_FLAG.length];
+			in.readFully(buffer);
+
+			int msg_type;
+			byte[] netID = new byte[16];
+			int msg_len;
+			int msg_code = 0;
+			boolean is_broadcast;
+			int header_length;
+			byte[] header_buffer = new byte[27];//ԭΪ25ֽ,ݲԶ㲥Ϣͷ
+			byte[] buffer_total = null;
+			byte[] nonce = null;
+			MessageDigest md5_digest = MessageDigest.getInstance("MD5");
+
+			do {
+				header_length = 0;
+				in.mark(27);
+				msg_type = in.readUnsignedByte();
+				is_broadcast = msg_type >= 0x80;
+				msg_type &= ~0x80;
+				header_length++;
+
+				if (msg_type == 7) {
+					in.read(netID);
+					msg_code = in.readUnsignedShort();
+					header_length += 16 + 2;
+				}
+
+				msg_len = in.readInt();
+				header_length += 4;
+
+				if (is_broadcast) {
+					in.readInt();
+					header_length += 4;
+					in.reset();
+					in.read(header_buffer, 0, header_length);
+				}
+
+				buffer = new byte[msg_len];
+				in.readFully(buffer);
+
+				if (is_broadcast) {
+					int nonce_size = in.readUnsignedByte();
+					nonce = new byte[nonce_size];
+					in.read(nonce);
+
+					buffer_total = new byte[header_length + buffer.length + nonce.length];
+					System.arraycopy(header_buffer, 0, buffer_total, 0, header_length);
+					System.arraycopy(buffer, 0, buffer_total, header_length, msg_len);
+					System.arraycopy(nonce, 0, buffer_total, header_length + buffer.length, nonce.length);
+					if (WorkProof.getDifficulity(md5_digest.digest(buffer_total)) < Node.broadcast_difficulity) {
+						continue;
+					}
+
+					buffer_total = new byte[buffer_total.length + 1];
+					System.arraycopy(header_buffer, 0, buffer_total, 0, header_length);
+					System.arraycopy(buffer, 0, buffer_total, header_length, msg_len);
+					buffer_total[header_length + buffer.length] = (byte) nonce.length;
+					System.arraycopy(nonce, 0, buffer_total, header_length + buffer.length + 1, nonce.length);
+				}
+
+				Message msg;
+				switch (msg_type) {
+				case 2:
+					msg = new NodesExchange();
+					break;
+				case 7:
+					msg = Registry.newMessageInstance(msg_code);
+					break;
+				default:
+					msg = new HeartBeat();
+				}
+				msg.input(new DataInputStream(new ByteArrayInputStream(buffer)), msg_len);
+				buffer = null;
+
+				if (msg instanceof BenchMessage) {
+					final Message callback = msg;
+					worker_pool.execute(new Runnable() {
+						public void run() {
+							callback.onReceive(null);
+						}
+					});
+				}
+				buffer_total = null;
+			} while (true);
+		} finally {
+			worker_pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package org.communicast.test;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.communicast.util.MD5;
+import org.communicast.util.MD5Batch;
+import org.communicast.util.WorkProofScheduler;
+
+/**
+ * MD5ʵֶԱ
+ * :̵߳㡢·Vector API·µÿϣ,ÿٶ
+ * У:MessageDigest·Vector APIչ㲥ժҪÿ
+ * --add-modules jdk.incubator.vectorsrc17·,һ˻رʵ
+ * :[Ϣֽ] [ÿ]
+ *
+ */
+public class MD5Bench {
+
+	public static void main(String[] args) throws Exception {
+		int message_size = args.length > 0 ? Integer.parseInt(args[0]) : 96;
+		int millis = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+		System.out.println("Vector API:" + (MD5Batch.isVectorSupported() ? "֧,·" + new MD5Batch(true).lanes() : "֧") +
+				" Ϣ:" + message_size + "ֽ :" + millis + "");
+		String[] names = {"", "·", ""};
+		boolean[][] options = {{false, false}, {true, false}, {true, true}};
+
+		byte[] source = new byte[message_size];
+		new Random().nextBytes(source);
+		for (int i = 0; i < names.length; i++) {
+			search(source, options[i][0], options[i][1], millis);//Ԥ
+			System.out.println(" " + names[i] + ": " + search(source, options[i][0], options[i][1], millis) + "/");
+		}
+
+		//յĹ㲥:ϢͷϢ,nonceһ
+		byte[] nonce = new byte[4];
+		new Random().nextBytes(nonce);
+		for (int round = 0; round < 2; round++) {
+			String prefix = round == 0 ? "Ԥ " : "";
+			System.out.println(prefix + "У MessageDigest: " + digest(source, nonce, millis) + "/");
+			System.out.println(prefix + "У ·: " + batch(new MD5Batch(false), source, nonce, millis) + "/");
+			System.out.println(prefix + "У : " + batch(new MD5Batch(true), source, nonce, millis) + "/");
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * ߳һɵ
+	 * @return ÿϣ
+	 */
+	private static long search(byte[] source, boolean multi_lane, boolean vector, int millis) throws InterruptedException {
+		WorkProofScheduler scheduler = new WorkProofScheduler(1, multi_lane, vector);
+		try {
+			WorkProofScheduler.Job job = scheduler.submit(source, MD5.DIGEST_LENGTH * 8, 0);
+			Thread.sleep(millis / 4);
+			long hashes = job.getHashes();
+			long start = System.nanoTime();
+			Thread.sleep(millis);
+			long count = job.getHashes() - hashes;
+			long nanos = System.nanoTime() - start;
+			job.cancel();
+			return Bench.perSecond(count, nanos);
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	/**
+	 * ,Ϣѭԭзʽͬ
+	 * @return ÿ
+	 */
+	private static long digest(byte[] message, byte[] nonce, int millis) throws Exception {
+		MessageDigest md5 = MessageDigest.getInstance("MD5");
+		long deadline = System.nanoTime() + millis * 1000000L;
+		long start = System.nanoTime();
+		long count = 0;
+		while (System.nanoTime() < deadline) {
+			for (int i = 0; i < 256; i++) {
+				md5.update(message, 0, message.length);
+				md5.update(nonce, 0, nonce.length);
+				md5.digest();
+			}
+			count += 256;
+		}
+		return Bench.perSecond(count, System.nanoTime() - start);
+	}
+
+	/**
+	 * ÿ㲢ȡȫժҪ
+	 * @return ÿ
+	 */
+	private static long batch(MD5Batch batch, byte[] message, byte[] nonce, int millis) {
+		long deadline = System.nanoTime() + millis * 1000000L;
+		long start = System.nanoTime();
+		long count = 0;
+		while (System.nanoTime() < deadline) {
+			for (int i = 0; i < 16; i++) {
+				batch.clear();
+				while (!batch.isFull()) {
+					batch.add(message, 0, message.length, nonce, 0, nonce.length);
+				}
+				batch.compute();
+				for (int j = 0; j < batch.lanes(); j++) {
+					batch.digest(j);
+				}
+				count += batch.lanes();
+			}
+		}
+		return Bench.perSecond(count, System.nanoTime() - start);
+	}
+}
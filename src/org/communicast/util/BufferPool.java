@@ -0,0 +1,153 @@
+package org.communicast.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * СּĻ
+ * ÿΪ2,߳ȴӱ̻߳ȡ,ʹȫֹ,󼶱Ļ岻
+ *
+ */
+public final class BufferPool {
+	public static final int MIN_CLASS_SIZE = 256;//С
+	public static final int MAX_CLASS_SIZE = 1024 * 1024;//󼶱
+	private static final int CLASS_NUM = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE / MIN_CLASS_SIZE) + 1;
+	private static final int THREAD_CACHE_BYTES = 256 * 1024;//ÿֽ̻߳
+	private static final int SHARED_CACHE_BYTES = 4 * 1024 * 1024;//ÿȫֻֽ
+
+	public static final BufferPool HEAP = new BufferPool(false);//ڻ
+	public static final BufferPool DIRECT = new BufferPool(true);//⻺
+
+	private static final LocalCache[] NO_CACHE = new LocalCache[0];//̲߳ʹ̻߳
+
+	private final boolean direct;
+	private final SharedCache[] shared;//ȫֻ
+	private final ThreadLocal<LocalCache[]> thread_cache;//̻߳
+
+	/**
+	 * һȫֻ
+	 */
+	private static final class SharedCache {
+		final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+		final AtomicInteger size = new AtomicInteger();
+	}
+
+	/**
+	 * һ̻߳
+	 */
+	private static final class LocalCache {
+		final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<ByteBuffer>();
+	}
+
+	private BufferPool(boolean direct) {
+		this.direct = direct;
+		shared = new SharedCache[CLASS_NUM];
+		for (int i = 0; i < CLASS_NUM; i++) {
+			shared[i] = new SharedCache();
+		}
+		thread_cache = new ThreadLocal<LocalCache[]>() {
+			protected LocalCache[] initialValue() {
+				//ÿֻ߳жһǷ߳
+				if (VirtualThreads.isVirtual(Thread.currentThread())) {
+					return NO_CACHE;
+				}
+				LocalCache[] cache = new LocalCache[CLASS_NUM];
+				for (int i = 0; i < CLASS_NUM; i++) {
+					cache[i] = new LocalCache();
+				}
+				return cache;
+			}
+		};
+	}
+
+	/**
+	 * Ƿ⻺
+	 * @return
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * 仺,positionΪ0,limitΪsize
+	 * @param size
+	 * @return üΪ1Ļ,release()
+	 */
+	public PooledBuffer allocate(int size) {
+		int index = classIndex(size);
+		ByteBuffer buffer = null;
+		if (index < CLASS_NUM) {
+			LocalCache[] cache = threadCache();
+			if (cache != null) {
+				buffer = cache[index].buffers.pollFirst();
+			}
+			if (buffer == null) {
+				buffer = shared[index].buffers.poll();
+				if (buffer != null) {
+					shared[index].size.decrementAndGet();
+				}
+			}
+			if (buffer == null) {
+				buffer = newBuffer(MIN_CLASS_SIZE << index);
+			}
+		} else {
+			buffer = newBuffer(size);
+		}
+		buffer.clear().limit(size);
+		return new PooledBuffer(this, buffer);
+	}
+
+	/**
+	 * 黹
+	 * @param buffer
+	 */
+	void recycle(ByteBuffer buffer) {
+		int capacity = buffer.capacity();
+		int index = classIndex(capacity);
+		if (index >= CLASS_NUM || MIN_CLASS_SIZE << index != capacity) {
+			//κμ
+			return;
+		}
+
+		LocalCache[] cache = threadCache();
+		if (cache != null && cache[index].buffers.size() < Math.max(1, THREAD_CACHE_BYTES / capacity)) {
+			cache[index].buffers.addFirst(buffer);
+			return;
+		}
+		if (shared[index].size.incrementAndGet() <= Math.max(1, SHARED_CACHE_BYTES / capacity)) {
+			shared[index].buffers.add(buffer);
+		} else {
+			shared[index].size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * ǰ̵߳Ļ,߳ڶ,ʹ̻߳
+	 * @return ̷߳null
+	 */
+	private LocalCache[] threadCache() {
+		LocalCache[] cache = thread_cache.get();
+		return cache == NO_CACHE ? null : cache;
+	}
+
+	private ByteBuffer newBuffer(int capacity) {
+		return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	/**
+	 * sizeС
+	 * @param size
+	 * @return 󼶱ʱֵСCLASS_NUM
+	 */
+	private static int classIndex(int size) {
+		if (size <= MIN_CLASS_SIZE) {
+			return 0;
+		}
+		if (size > MAX_CLASS_SIZE) {
+			return CLASS_NUM;
+		}
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+	}
+}
@@ -0,0 +1,210 @@
+package org.communicast.util;
+
+/**
+ * MD5ʵ,ɱͻָм״̬Ҽ̲ڴ
+ * ֤Թ̶ǰ׺ֻһ,ÿγԴм״̬
+ *
+ */
+public final class MD5 {
+	public static final int DIGEST_LENGTH = 16;
+	private static final int BLOCK_SIZE = 64;
+
+	int a, b, c, d;//ӱ,·ʱȡ
+	final byte[] block = new byte[BLOCK_SIZE];//δһ
+	int block_length;
+	long count;//ֽ
+	private final int[] x = new int[16];
+
+	public MD5() {
+		reset();
+	}
+
+	public void reset() {
+		a = 0x67452301;
+		b = 0xefcdab89;
+		c = 0x98badcfe;
+		d = 0x10325476;
+		block_length = 0;
+		count = 0;
+	}
+
+	/**
+	 * һʵм״̬
+	 * @param other
+	 */
+	public void copyFrom(MD5 other) {
+		a = other.a;
+		b = other.b;
+		c = other.c;
+		d = other.d;
+		count = other.count;
+		block_length = other.block_length;
+		System.arraycopy(other.block, 0, block, 0, block_length);
+	}
+
+	public void update(byte[] input, int offset, int length) {
+		count += length;
+		if (block_length > 0) {
+			int n = Math.min(length, BLOCK_SIZE - block_length);
+			System.arraycopy(input, offset, block, block_length, n);
+			block_length += n;
+			offset += n;
+			length -= n;
+			if (block_length < BLOCK_SIZE) {
+				return;
+			}
+			transform(block, 0);
+			block_length = 0;
+		}
+		while (length >= BLOCK_SIZE) {
+			transform(input, offset);
+			offset += BLOCK_SIZE;
+			length -= BLOCK_SIZE;
+		}
+		if (length > 0) {
+			System.arraycopy(input, offset, block, 0, length);
+			block_length = length;
+		}
+	}
+
+	public void update(byte[] input) {
+		update(input, 0, input.length);
+	}
+
+	/**
+	 * ɼ,дժҪ
+	 * @param out
+	 * @param offset
+	 */
+	public void digest(byte[] out, int offset) {
+		long bits = count << 3;
+		block[block_length++] = (byte) 0x80;
+		if (block_length > BLOCK_SIZE - 8) {
+			while (block_length < BLOCK_SIZE) {
+				block[block_length++] = 0;
+			}
+			transform(block, 0);
+			block_length = 0;
+		}
+		while (block_length < BLOCK_SIZE - 8) {
+			block[block_length++] = 0;
+		}
+		for (int i = 0; i < 8; i++) {
+			block[BLOCK_SIZE - 8 + i] = (byte) (bits >>> (i * 8));
+		}
+		transform(block, 0);
+
+		putInt(out, offset, a);
+		putInt(out, offset + 4, b);
+		putInt(out, offset + 8, c);
+		putInt(out, offset + 12, d);
+		reset();
+	}
+
+	public byte[] digest() {
+		byte[] out = new byte[DIGEST_LENGTH];
+		digest(out, 0);
+		return out;
+	}
+
+	private static void putInt(byte[] out, int offset, int value) {
+		out[offset] = (byte) value;
+		out[offset + 1] = (byte) (value >>> 8);
+		out[offset + 2] = (byte) (value >>> 16);
+		out[offset + 3] = (byte) (value >>> 24);
+	}
+
+	private void transform(byte[] input, int offset) {
+		int[] x = this.x;
+		for (int i = 0; i < 16; i++, offset += 4) {
+			x[i] = input[offset] & 0xff | (input[offset + 1] & 0xff) << 8 | (input[offset + 2] & 0xff) << 16 | input[offset + 3] << 24;
+		}
+		int a = this.a, b = this.b, c = this.c, d = this.d;
+
+		a = FF(a, b, c, d, x[0], 7, 0xd76aa478);
+		d = FF(d, a, b, c, x[1], 12, 0xe8c7b756);
+		c = FF(c, d, a, b, x[2], 17, 0x242070db);
+		b = FF(b, c, d, a, x[3], 22, 0xc1bdceee);
+		a = FF(a, b, c, d, x[4], 7, 0xf57c0faf);
+		d = FF(d, a, b, c, x[5], 12, 0x4787c62a);
+		c = FF(c, d, a, b, x[6], 17, 0xa8304613);
+		b = FF(b, c, d, a, x[7], 22, 0xfd469501);
+		a = FF(a, b, c, d, x[8], 7, 0x698098d8);
+		d = FF(d, a, b, c, x[9], 12, 0x8b44f7af);
+		c = FF(c, d, a, b, x[10], 17, 0xffff5bb1);
+		b = FF(b, c, d, a, x[11], 22, 0x895cd7be);
+		a = FF(a, b, c, d, x[12], 7, 0x6b901122);
+		d = FF(d, a, b, c, x[13], 12, 0xfd987193);
+		c = FF(c, d, a, b, x[14], 17, 0xa679438e);
+		b = FF(b, c, d, a, x[15], 22, 0x49b40821);
+		a = GG(a, b, c, d, x[1], 5, 0xf61e2562);
+		d = GG(d, a, b, c, x[6], 9, 0xc040b340);
+		c = GG(c, d, a, b, x[11], 14, 0x265e5a51);
+		b = GG(b, c, d, a, x[0], 20, 0xe9b6c7aa);
+		a = GG(a, b, c, d, x[5], 5, 0xd62f105d);
+		d = GG(d, a, b, c, x[10], 9, 0x02441453);
+		c = GG(c, d, a, b, x[15], 14, 0xd8a1e681);
+		b = GG(b, c, d, a, x[4], 20, 0xe7d3fbc8);
+		a = GG(a, b, c, d, x[9], 5, 0x21e1cde6);
+		d = GG(d, a, b, c, x[14], 9, 0xc33707d6);
+		c = GG(c, d, a, b, x[3], 14, 0xf4d50d87);
+		b = GG(b, c, d, a, x[8], 20, 0x455a14ed);
+		a = GG(a, b, c, d, x[13], 5, 0xa9e3e905);
+		d = GG(d, a, b, c, x[2], 9, 0xfcefa3f8);
+		c = GG(c, d, a, b, x[7], 14, 0x676f02d9);
+		b = GG(b, c, d, a, x[12], 20, 0x8d2a4c8a);
+		a = HH(a, b, c, d, x[5], 4, 0xfffa3942);
+		d = HH(d, a, b, c, x[8], 11, 0x8771f681);
+		c = HH(c, d, a, b, x[11], 16, 0x6d9d6122);
+		b = HH(b, c, d, a, x[14], 23, 0xfde5380c);
+		a = HH(a, b, c, d, x[1], 4, 0xa4beea44);
+		d = HH(d, a, b, c, x[4], 11, 0x4bdecfa9);
+		c = HH(c, d, a, b, x[7], 16, 0xf6bb4b60);
+		b = HH(b, c, d, a, x[10], 23, 0xbebfbc70);
+		a = HH(a, b, c, d, x[13], 4, 0x289b7ec6);
+		d = HH(d, a, b, c, x[0], 11, 0xeaa127fa);
+		c = HH(c, d, a, b, x[3], 16, 0xd4ef3085);
+		b = HH(b, c, d, a, x[6], 23, 0x04881d05);
+		a = HH(a, b, c, d, x[9], 4, 0xd9d4d039);
+		d = HH(d, a, b, c, x[12], 11, 0xe6db99e5);
+		c = HH(c, d, a, b, x[15], 16, 0x1fa27cf8);
+		b = HH(b, c, d, a, x[2], 23, 0xc4ac5665);
+		a = II(a, b, c, d, x[0], 6, 0xf4292244);
+		d = II(d, a, b, c, x[7], 10, 0x432aff97);
+		c = II(c, d, a, b, x[14], 15, 0xab9423a7);
+		b = II(b, c, d, a, x[5], 21, 0xfc93a039);
+		a = II(a, b, c, d, x[12], 6, 0x655b59c3);
+		d = II(d, a, b, c, x[3], 10, 0x8f0ccc92);
+		c = II(c, d, a, b, x[10], 15, 0xffeff47d);
+		b = II(b, c, d, a, x[1], 21, 0x85845dd1);
+		a = II(a, b, c, d, x[8], 6, 0x6fa87e4f);
+		d = II(d, a, b, c, x[15], 10, 0xfe2ce6e0);
+		c = II(c, d, a, b, x[6], 15, 0xa3014314);
+		b = II(b, c, d, a, x[13], 21, 0x4e0811a1);
+		a = II(a, b, c, d, x[4], 6, 0xf7537e82);
+		d = II(d, a, b, c, x[11], 10, 0xbd3af235);
+		c = II(c, d, a, b, x[2], 15, 0x2ad7d2bb);
+		b = II(b, c, d, a, x[9], 21, 0xeb86d391);
+
+		this.a += a;
+		this.b += b;
+		this.c += c;
+		this.d += d;
+	}
+
+	static int FF(int a, int b, int c, int d, int x, int s, int k) {
+		return Integer.rotateLeft(a + (b & c | ~b & d) + x + k, s) + b;
+	}
+
+	static int GG(int a, int b, int c, int d, int x, int s, int k) {
+		return Integer.rotateLeft(a + (b & d | c & ~d) + x + k, s) + b;
+	}
+
+	static int HH(int a, int b, int c, int d, int x, int s, int k) {
+		return Integer.rotateLeft(a + (b ^ c ^ d) + x + k, s) + b;
+	}
+
+	static int II(int a, int b, int c, int d, int x, int s, int k) {
+		return Integer.rotateLeft(a + (c ^ (b | ~d)) + x + k, s) + b;
+	}
+}
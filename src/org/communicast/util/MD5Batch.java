@@ -0,0 +1,233 @@
+package org.communicast.util;
+
+/**
+ * ϢMD5,ÿϢռһ·,У鹤֤
+ * ֻʵֱMessageDigestڽʵֿ,ϢѭУ,ܶԱȼMD5Bench
+ * ÿϢƴӶ(Ϣnonce),ݲ,computeǰ뱣ֲ
+ * ĩβһڼʱƲ,ֱӴԭݶȡ
+ * ·ͬ,϶̵Ϣһʱȡ,·ļ
+ * ʵ̰߳ȫ,ÿӸһ
+ *
+ */
+public final class MD5Batch {
+	private static final int BLOCK_SIZE = 64;
+
+	private final MD5Kernel kernel;
+	private final int lanes;//·,ͬʱϢ
+	private final int[] x;//ŵϢ
+	private final int[] state;//ŵӱ
+	private final int[] digests;//·,ÿ·a,b,c,d
+	private final byte[][] data;//һ
+	private final int[] offset;
+	private final int[] length;
+	private final byte[][] tail;//ڶ
+	private final int[] tail_offset;
+	private final int[] tail_length;
+	private final int[] blocks;//·Ŀ
+	private final byte[][] padding;//·ĩβĿ
+	private final int[] padding_start;//ĩβϢеʼλ
+	private int size;//ѼϢ
+
+	/**
+	 * л֧ʱʹVector API
+	 */
+	public MD5Batch() {
+		this(true);
+	}
+
+	/**
+	 * @param vector ǷʹVector API,֧ʱʹ·
+	 */
+	public MD5Batch(boolean vector) {
+		kernel = MD5Kernel.get(vector);
+		lanes = kernel.lanes;
+		x = new int[16 * lanes];
+		state = new int[4 * lanes];
+		digests = new int[4 * lanes];
+		data = new byte[lanes][];
+		offset = new int[lanes];
+		length = new int[lanes];
+		tail = new byte[lanes][];
+		tail_offset = new int[lanes];
+		tail_length = new int[lanes];
+		blocks = new int[lanes];
+		padding = new byte[lanes][BLOCK_SIZE * 2];
+		padding_start = new int[lanes];
+	}
+
+	/**
+	 * лǷ֧Vector API,--add-modules jdk.incubator.vector
+	 * @return
+	 */
+	public static boolean isVectorSupported() {
+		return MD5Kernel.isVectorSupported();
+	}
+
+	/**
+	 * ·
+	 * @return
+	 */
+	public int lanes() {
+		return lanes;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isFull() {
+		return size == lanes;
+	}
+
+	/**
+	 * ѼϢ
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			data[i] = null;
+			tail[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * һƴӵϢ
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param tail ڶ,ûʱΪ0
+	 * @param tail_offset
+	 * @param tail_length
+	 * @return Ϣ
+	 */
+	public int add(byte[] data, int offset, int length, byte[] tail, int tail_offset, int tail_length) {
+		if (size == lanes) {
+			throw new IllegalStateException("Batch is full");
+		}
+		int i = size++;
+		this.data[i] = data;
+		this.offset[i] = offset;
+		this.length[i] = length;
+		this.tail[i] = tail;
+		this.tail_offset[i] = tail_offset;
+		this.tail_length[i] = tail_length;
+		int total = length + tail_length;
+		//ݺ1ֽ0x808ֽڳ
+		blocks[i] = (total + 8) / BLOCK_SIZE + 1;
+		int start = total / BLOCK_SIZE * BLOCK_SIZE;
+		padding_start[i] = start;
+
+		//Ʋһʣݲ
+		byte[] pad = padding[i];
+		int n;
+		if (start < length) {
+			n = length - start;
+			System.arraycopy(data, offset + start, pad, 0, n);
+			System.arraycopy(tail, tail_offset, pad, n, tail_length);
+			n += tail_length;
+		} else {
+			n = total - start;
+			System.arraycopy(tail, tail_offset + start - length, pad, 0, n);
+		}
+		pad[n++] = (byte) 0x80;
+		int end = blocks[i] * BLOCK_SIZE - start;
+		while (n < end - 8) {
+			pad[n++] = 0;
+		}
+		long bits = (long) total << 3;
+		for (int j = 0; j < 8; j++) {
+			pad[end - 8 + j] = (byte) (bits >>> (j * 8));
+		}
+		return i;
+	}
+
+	/**
+	 * ѼϢ
+	 */
+	public void compute() {
+		int max_blocks = 0;
+		for (int l = 0; l < size; l++) {
+			max_blocks = Math.max(max_blocks, blocks[l]);
+		}
+		for (int l = 0; l < lanes; l++) {
+			state[l] = 0x67452301;
+			state[lanes + l] = 0xefcdab89;
+			state[2 * lanes + l] = 0x98badcfe;
+			state[3 * lanes + l] = 0x10325476;
+		}
+		for (int block = 0; block < max_blocks; block++) {
+			for (int l = 0; l < size; l++) {
+				if (block < blocks[l]) {
+					load(l, block);
+				}
+			}
+			kernel.transform(x, 0, state);
+			for (int l = 0; l < size; l++) {
+				if (block == blocks[l] - 1) {
+					for (int i = 0; i < 4; i++) {
+						digests[l * 4 + i] = state[i * lanes + l];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * indexϢժҪ
+	 * @param index
+	 * @return 16ֽ
+	 */
+	public byte[] digest(int index) {
+		byte[] out = new byte[MD5.DIGEST_LENGTH];
+		for (int i = 0; i < 4; i++) {
+			int value = digests[index * 4 + i];
+			out[i * 4] = (byte) value;
+			out[i * 4 + 1] = (byte) (value >>> 8);
+			out[i * 4 + 2] = (byte) (value >>> 16);
+			out[i * 4 + 3] = (byte) (value >>> 24);
+		}
+		return out;
+	}
+
+	/**
+	 * lane·ĵblockдϢ
+	 * ĩβ仺ȡ,ȫڵһڵֱӶȡ,εֽƴ
+	 * @param lane
+	 * @param block
+	 */
+	private void load(int lane, int block) {
+		int position = block * BLOCK_SIZE;
+		int start = padding_start[lane];
+		if (position >= start) {
+			byte[] pad = padding[lane];
+			for (int i = 0, p = position - start; i < 16; i++, p += 4) {
+				x[i * lanes + lane] = getInt(pad, p);
+			}
+			return;
+		}
+		byte[] data = this.data[lane];
+		int offset = this.offset[lane];
+		int length = this.length[lane];
+		for (int i = 0; i < 16; i++, position += 4) {
+			int word;
+			if (position + 4 <= length) {
+				word = getInt(data, offset + position);
+			} else {
+				word = 0;
+				for (int j = 0; j < 4; j++) {
+					int p = position + j - length;
+					byte b = p < 0 ? data[offset + length + p] : tail[lane][tail_offset[lane] + p];
+					word |= (b & 0xff) << (j * 8);
+				}
+			}
+			x[i * lanes + lane] = word;
+		}
+	}
+
+	/**
+	 * Сȡ4ֽ
+	 */
+	private static int getInt(byte[] data, int p) {
+		return data[p] & 0xff | (data[p + 1] & 0xff) << 8 | (data[p + 2] & 0xff) << 16 | data[p + 3] << 24;
+	}
+}
@@ -0,0 +1,58 @@
+package org.communicast.util;
+
+/**
+ * ·MD5ѹ,ͬʱlanes·ݿһα任
+ * Ϣְ·:x[base+*lanes+·];ӱa,b,c,dlanesδ:state[*lanes+·]
+ * Vector APIʱʹʵ,ʹ·ıʵ
+ *
+ */
+abstract class MD5Kernel {
+	private static final String VECTOR_KERNEL = "org.communicast.util.VectorMD5Kernel";
+	private static final MD5Kernel vector_kernel;//ʵ,ʱΪnull
+
+	static {
+		MD5Kernel kernel = null;
+		try {
+			//ʵֵJava 17,ʱӲ--add-modules jdk.incubator.vector
+			kernel = (MD5Kernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+			if (kernel.lanes <= ScalarMD5Kernel.LANES) {
+				//Ĵڱ·,û
+				kernel = null;
+			}
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			kernel = null;
+		}
+		vector_kernel = kernel;
+	}
+
+	final int lanes;//·
+
+	MD5Kernel(int lanes) {
+		this.lanes = lanes;
+	}
+
+	/**
+	 * Ը·һݿ任,ۼӵӱ
+	 * @param x ŵϢ
+	 * @param base Ϣֵʼλ
+	 * @param state ŵӱ
+	 */
+	abstract void transform(int[] x, int base, int[] state);
+
+	/**
+	 * лǷ֧ʵ
+	 * @return
+	 */
+	static boolean isVectorSupported() {
+		return vector_kernel != null;
+	}
+
+	/**
+	 * ѡʵ
+	 * @param vector Ƿʹʵ
+	 * @return ֧ʵʱرʵ
+	 */
+	static MD5Kernel get(boolean vector) {
+		return vector && vector_kernel != null ? vector_kernel : new ScalarMD5Kernel();
+	}
+}
@@ -0,0 +1,114 @@
+package org.communicast.util;
+
+/**
+ * ·MD5,ͬʱֻnonceͬĺѡ,·ѹʵ־
+ * кѡǰ׺м״̬,nonceȱͬ
+ *
+ */
+final class MD5Lanes {
+	private static final int BLOCK_SIZE = 64;
+
+	private final MD5Kernel kernel;
+	private final int lanes;//·
+	private final byte[] tail;//ĩβݿĹ̶,ǰ׺ʣ+nonceλ+
+	private final int[] x;//ŵϢ,x[(*16+)*lanes+·]
+	private final int[] state;//ŵӱ,a,b,c,dlanes
+	private MD5 prefix;
+	private int nonce_length;
+	private int tail_blocks;//ĩβݿ,12
+
+	MD5Lanes(MD5Kernel kernel) {
+		this.kernel = kernel;
+		lanes = kernel.lanes;
+		tail = new byte[BLOCK_SIZE * 2];
+		x = new int[32 * lanes];
+		state = new int[4 * lanes];
+	}
+
+	/**
+	 * ·,ÿcomputeĺѡ
+	 * @return
+	 */
+	int lanes() {
+		return lanes;
+	}
+
+	/**
+	 * ǰ׺м״̬nonce,׼ĩβݿĹ̶
+	 * @param prefix
+	 * @param nonce_length
+	 */
+	void prepare(MD5 prefix, int nonce_length) {
+		this.prefix = prefix;
+		this.nonce_length = nonce_length;
+		int length = prefix.block_length + nonce_length;
+		tail_blocks = length + 9 > BLOCK_SIZE ? 2 : 1;
+		long bits = (prefix.count + nonce_length) << 3;
+		System.arraycopy(prefix.block, 0, tail, 0, prefix.block_length);
+		int end = tail_blocks * BLOCK_SIZE;
+		for (int i = prefix.block_length; i < end - 8; i++) {
+			tail[i] = 0;
+		}
+		tail[length] = (byte) 0x80;
+		for (int i = 0; i < 8; i++) {
+			tail[end - 8 + i] = (byte) (bits >>> (i * 8));
+		}
+		for (int i = 0, p = 0; i < tail_blocks * 16; i++, p += 4) {
+			int word = tail[p] & 0xff | (tail[p + 1] & 0xff) << 8 | (tail[p + 2] & 0xff) << 16 | tail[p + 3] << 24;
+			for (int l = 0; l < lanes; l++) {
+				x[i * lanes + l] = word;
+			}
+		}
+	}
+
+	int getNonceLength() {
+		return nonce_length;
+	}
+
+	/**
+	 * дlane·nonce,ֻ޸nonceڵϢ
+	 * @param lane
+	 * @param nonce
+	 */
+	void setNonce(int lane, byte[] nonce) {
+		int position = prefix.block_length;
+		for (int i = 0; i < nonce_length; i++, position++) {
+			int index = (position >> 2) * lanes + lane;
+			int shift = (position & 3) << 3;
+			x[index] = x[index] & ~(0xff << shift) | (nonce[i] & 0xff) << shift;
+		}
+	}
+
+	/**
+	 * ·ժҪ
+	 */
+	void compute() {
+		for (int l = 0; l < lanes; l++) {
+			state[l] = prefix.a;
+			state[lanes + l] = prefix.b;
+			state[2 * lanes + l] = prefix.c;
+			state[3 * lanes + l] = prefix.d;
+		}
+		kernel.transform(x, 0, state);
+		if (tail_blocks == 2) {
+			kernel.transform(x, 16 * lanes, state);
+		}
+	}
+
+	/**
+	 * lane·ժҪѶ(ǰ׺),WorkProof.getDifficulityͬ
+	 * @param lane
+	 * @return
+	 */
+	int getDifficulity(int lane) {
+		int difficulity = 0;
+		for (int i = 0; i < 4; i++) {
+			int zeros = Integer.numberOfLeadingZeros(Integer.reverseBytes(state[i * lanes + lane]));
+			difficulity += zeros;
+			if (zeros < 32) {
+				break;
+			}
+		}
+		return difficulity;
+	}
+}
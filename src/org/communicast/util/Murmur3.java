@@ -0,0 +1,133 @@
+package org.communicast.util;
+
+/**
+ * MurmurHash3 x64 128λϣ,ֱӶƬμ,
+ * 64λӷֱΪh1h2ֵ,ԿĹϣ
+ *
+ */
+public final class Murmur3 {
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private Murmur3() {
+	}
+
+	/**
+	 * 128λϣ
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param seed1
+	 * @param seed2
+	 * @param out ,out[0]Ϊ64λ,out[1]Ϊ64λ
+	 */
+	@SuppressWarnings("fallthrough")//ʣֽڵswitchMurmurHash3ԭ㷨𼶹ᴩ
+	public static void hash128(byte[] data, int offset, int length, long seed1, long seed2, long[] out) {
+		long h1 = seed1;
+		long h2 = seed2;
+		int blocks = length >>> 4;
+		int position = offset;
+
+		//16ֽڷֿ
+		for (int i = 0; i < blocks; i++) {
+			long k1 = getLong(data, position);
+			long k2 = getLong(data, position + 8);
+			position += 16;
+
+			k1 *= C1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= C2;
+			h1 ^= k1;
+
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			k2 *= C2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= C1;
+			h2 ^= k2;
+
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		//ʣֽ,caseᴩִ
+		long k1 = 0;
+		long k2 = 0;
+		switch (length & 15) {
+		case 15: k2 ^= (data[position + 14] & 0xffL) << 48;
+		case 14: k2 ^= (data[position + 13] & 0xffL) << 40;
+		case 13: k2 ^= (data[position + 12] & 0xffL) << 32;
+		case 12: k2 ^= (data[position + 11] & 0xffL) << 24;
+		case 11: k2 ^= (data[position + 10] & 0xffL) << 16;
+		case 10: k2 ^= (data[position + 9] & 0xffL) << 8;
+		case 9:
+			k2 ^= data[position + 8] & 0xffL;
+			k2 *= C2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= C1;
+			h2 ^= k2;
+		case 8: k1 ^= (data[position + 7] & 0xffL) << 56;
+		case 7: k1 ^= (data[position + 6] & 0xffL) << 48;
+		case 6: k1 ^= (data[position + 5] & 0xffL) << 40;
+		case 5: k1 ^= (data[position + 4] & 0xffL) << 32;
+		case 4: k1 ^= (data[position + 3] & 0xffL) << 24;
+		case 3: k1 ^= (data[position + 2] & 0xffL) << 16;
+		case 2: k1 ^= (data[position + 1] & 0xffL) << 8;
+		case 1:
+			k1 ^= data[position] & 0xffL;
+			k1 *= C1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= C2;
+			h1 ^= k1;
+		}
+
+		h1 ^= length;
+		h2 ^= length;
+
+		h1 += h2;
+		h2 += h1;
+
+		h1 = fmix64(h1);
+		h2 = fmix64(h2);
+
+		h1 += h2;
+		h2 += h1;
+
+		out[0] = h1;
+		out[1] = h2;
+	}
+
+	/**
+	 * 64λϺ
+	 * @param k
+	 * @return
+	 */
+	public static long fmix64(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	/**
+	 * Сȡ8ֽ
+	 * @param data
+	 * @param position
+	 * @return
+	 */
+	public static long getLong(byte[] data, int position) {
+		return (data[position] & 0xffL)
+				| (data[position + 1] & 0xffL) << 8
+				| (data[position + 2] & 0xffL) << 16
+				| (data[position + 3] & 0xffL) << 24
+				| (data[position + 4] & 0xffL) << 32
+				| (data[position + 5] & 0xffL) << 40
+				| (data[position + 6] & 0xffL) << 48
+				| (data[position + 7] & 0xffL) << 56;
+	}
+}
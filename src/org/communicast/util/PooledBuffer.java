@@ -0,0 +1,94 @@
+package org.communicast.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * üĻ,ʱ黹
+ * duplicate()õͬһڴͼдλöĸ
+ *
+ */
+public final class PooledBuffer {
+	private final BufferPool pool;//,Ϊnullʱ
+	private final ByteBuffer buffer;
+	private final PooledBuffer root;//ԭʼ
+	private final AtomicInteger ref_count;
+
+	PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+		this.pool = pool;
+		this.buffer = buffer;
+		root = this;
+		ref_count = new AtomicInteger(1);
+	}
+
+	private PooledBuffer(PooledBuffer root, ByteBuffer buffer) {
+		pool = root.pool;
+		this.buffer = buffer;
+		this.root = root;
+		ref_count = root.ref_count;
+	}
+
+	/**
+	 * װصĻ
+	 * @param buffer
+	 * @return
+	 */
+	public static PooledBuffer wrap(ByteBuffer buffer) {
+		return new PooledBuffer((BufferPool) null, buffer);
+	}
+
+	/**
+	 * װص
+	 * @param data
+	 * @return
+	 */
+	public static PooledBuffer wrap(byte[] data) {
+		return wrap(ByteBuffer.wrap(data));
+	}
+
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public PooledBuffer retain() {
+		int count;
+		do {
+			count = ref_count.get();
+			if (count <= 0) {
+				throw new IllegalStateException("Buffer already released");
+			}
+		} while (!ref_count.compareAndSet(count, count + 1));
+		return this;
+	}
+
+	/**
+	 * òضдλöĸ,ͬҪrelease()
+	 * @return
+	 */
+	public PooledBuffer duplicate() {
+		retain();
+		return new PooledBuffer(root, buffer.duplicate());
+	}
+
+	/**
+	 * ͷ
+	 * @return 㷵true
+	 */
+	public boolean release() {
+		int count = ref_count.decrementAndGet();
+		if (count == 0) {
+			if (pool != null) {
+				pool.recycle(root.buffer);
+			}
+			return true;
+		}
+		if (count < 0) {
+			throw new IllegalStateException("Buffer already released");
+		}
+		return false;
+	}
+}
@@ -0,0 +1,158 @@
+package org.communicast.util;
+
+/**
+ * ·ıʵ
+ * ·ļ໥ִ,CPUָ
+ *
+ */
+final class ScalarMD5Kernel extends MD5Kernel {
+	static final int LANES = 2;//·ʱtransformʱķС,
+
+	ScalarMD5Kernel() {
+		super(LANES);
+	}
+
+	@Override
+	void transform(int[] x, int base, int[] state) {
+		int a0 = state[0], b0 = state[2], c0 = state[4], d0 = state[6];
+		int a1 = state[1], b1 = state[3], c1 = state[5], d1 = state[7];
+
+		a0 = MD5.FF(a0, b0, c0, d0, x[base + 0], 7, 0xd76aa478);
+		a1 = MD5.FF(a1, b1, c1, d1, x[base + 1], 7, 0xd76aa478);
+		d0 = MD5.FF(d0, a0, b0, c0, x[base + 2], 12, 0xe8c7b756);
+		d1 = MD5.FF(d1, a1, b1, c1, x[base + 3], 12, 0xe8c7b756);
+		c0 = MD5.FF(c0, d0, a0, b0, x[base + 4], 17, 0x242070db);
+		c1 = MD5.FF(c1, d1, a1, b1, x[base + 5], 17, 0x242070db);
+		b0 = MD5.FF(b0, c0, d0, a0, x[base + 6], 22, 0xc1bdceee);
+		b1 = MD5.FF(b1, c1, d1, a1, x[base + 7], 22, 0xc1bdceee);
+		a0 = MD5.FF(a0, b0, c0, d0, x[base + 8], 7, 0xf57c0faf);
+		a1 = MD5.FF(a1, b1, c1, d1, x[base + 9], 7, 0xf57c0faf);
+		d0 = MD5.FF(d0, a0, b0, c0, x[base + 10], 12, 0x4787c62a);
+		d1 = MD5.FF(d1, a1, b1, c1, x[base + 11], 12, 0x4787c62a);
+		c0 = MD5.FF(c0, d0, a0, b0, x[base + 12], 17, 0xa8304613);
+		c1 = MD5.FF(c1, d1, a1, b1, x[base + 13], 17, 0xa8304613);
+		b0 = MD5.FF(b0, c0, d0, a0, x[base + 14], 22, 0xfd469501);
+		b1 = MD5.FF(b1, c1, d1, a1, x[base + 15], 22, 0xfd469501);
+		a0 = MD5.FF(a0, b0, c0, d0, x[base + 16], 7, 0x698098d8);
+		a1 = MD5.FF(a1, b1, c1, d1, x[base + 17], 7, 0x698098d8);
+		d0 = MD5.FF(d0, a0, b0, c0, x[base + 18], 12, 0x8b44f7af);
+		d1 = MD5.FF(d1, a1, b1, c1, x[base + 19], 12, 0x8b44f7af);
+		c0 = MD5.FF(c0, d0, a0, b0, x[base + 20], 17, 0xffff5bb1);
+		c1 = MD5.FF(c1, d1, a1, b1, x[base + 21], 17, 0xffff5bb1);
+		b0 = MD5.FF(b0, c0, d0, a0, x[base + 22], 22, 0x895cd7be);
+		b1 = MD5.FF(b1, c1, d1, a1, x[base + 23], 22, 0x895cd7be);
+		a0 = MD5.FF(a0, b0, c0, d0, x[base + 24], 7, 0x6b901122);
+		a1 = MD5.FF(a1, b1, c1, d1, x[base + 25], 7, 0x6b901122);
+		d0 = MD5.FF(d0, a0, b0, c0, x[base + 26], 12, 0xfd987193);
+		d1 = MD5.FF(d1, a1, b1, c1, x[base + 27], 12, 0xfd987193);
+		c0 = MD5.FF(c0, d0, a0, b0, x[base + 28], 17, 0xa679438e);
+		c1 = MD5.FF(c1, d1, a1, b1, x[base + 29], 17, 0xa679438e);
+		b0 = MD5.FF(b0, c0, d0, a0, x[base + 30], 22, 0x49b40821);
+		b1 = MD5.FF(b1, c1, d1, a1, x[base + 31], 22, 0x49b40821);
+		a0 = MD5.GG(a0, b0, c0, d0, x[base + 2], 5, 0xf61e2562);
+		a1 = MD5.GG(a1, b1, c1, d1, x[base + 3], 5, 0xf61e2562);
+		d0 = MD5.GG(d0, a0, b0, c0, x[base + 12], 9, 0xc040b340);
+		d1 = MD5.GG(d1, a1, b1, c1, x[base + 13], 9, 0xc040b340);
+		c0 = MD5.GG(c0, d0, a0, b0, x[base + 22], 14, 0x265e5a51);
+		c1 = MD5.GG(c1, d1, a1, b1, x[base + 23], 14, 0x265e5a51);
+		b0 = MD5.GG(b0, c0, d0, a0, x[base + 0], 20, 0xe9b6c7aa);
+		b1 = MD5.GG(b1, c1, d1, a1, x[base + 1], 20, 0xe9b6c7aa);
+		a0 = MD5.GG(a0, b0, c0, d0, x[base + 10], 5, 0xd62f105d);
+		a1 = MD5.GG(a1, b1, c1, d1, x[base + 11], 5, 0xd62f105d);
+		d0 = MD5.GG(d0, a0, b0, c0, x[base + 20], 9, 0x02441453);
+		d1 = MD5.GG(d1, a1, b1, c1, x[base + 21], 9, 0x02441453);
+		c0 = MD5.GG(c0, d0, a0, b0, x[base + 30], 14, 0xd8a1e681);
+		c1 = MD5.GG(c1, d1, a1, b1, x[base + 31], 14, 0xd8a1e681);
+		b0 = MD5.GG(b0, c0, d0, a0, x[base + 8], 20, 0xe7d3fbc8);
+		b1 = MD5.GG(b1, c1, d1, a1, x[base + 9], 20, 0xe7d3fbc8);
+		a0 = MD5.GG(a0, b0, c0, d0, x[base + 18], 5, 0x21e1cde6);
+		a1 = MD5.GG(a1, b1, c1, d1, x[base + 19], 5, 0x21e1cde6);
+		d0 = MD5.GG(d0, a0, b0, c0, x[base + 28], 9, 0xc33707d6);
+		d1 = MD5.GG(d1, a1, b1, c1, x[base + 29], 9, 0xc33707d6);
+		c0 = MD5.GG(c0, d0, a0, b0, x[base + 6], 14, 0xf4d50d87);
+		c1 = MD5.GG(c1, d1, a1, b1, x[base + 7], 14, 0xf4d50d87);
+		b0 = MD5.GG(b0, c0, d0, a0, x[base + 16], 20, 0x455a14ed);
+		b1 = MD5.GG(b1, c1, d1, a1, x[base + 17], 20, 0x455a14ed);
+		a0 = MD5.GG(a0, b0, c0, d0, x[base + 26], 5, 0xa9e3e905);
+		a1 = MD5.GG(a1, b1, c1, d1, x[base + 27], 5, 0xa9e3e905);
+		d0 = MD5.GG(d0, a0, b0, c0, x[base + 4], 9, 0xfcefa3f8);
+		d1 = MD5.GG(d1, a1, b1, c1, x[base + 5], 9, 0xfcefa3f8);
+		c0 = MD5.GG(c0, d0, a0, b0, x[base + 14], 14, 0x676f02d9);
+		c1 = MD5.GG(c1, d1, a1, b1, x[base + 15], 14, 0x676f02d9);
+		b0 = MD5.GG(b0, c0, d0, a0, x[base + 24], 20, 0x8d2a4c8a);
+		b1 = MD5.GG(b1, c1, d1, a1, x[base + 25], 20, 0x8d2a4c8a);
+		a0 = MD5.HH(a0, b0, c0, d0, x[base + 10], 4, 0xfffa3942);
+		a1 = MD5.HH(a1, b1, c1, d1, x[base + 11], 4, 0xfffa3942);
+		d0 = MD5.HH(d0, a0, b0, c0, x[base + 16], 11, 0x8771f681);
+		d1 = MD5.HH(d1, a1, b1, c1, x[base + 17], 11, 0x8771f681);
+		c0 = MD5.HH(c0, d0, a0, b0, x[base + 22], 16, 0x6d9d6122);
+		c1 = MD5.HH(c1, d1, a1, b1, x[base + 23], 16, 0x6d9d6122);
+		b0 = MD5.HH(b0, c0, d0, a0, x[base + 28], 23, 0xfde5380c);
+		b1 = MD5.HH(b1, c1, d1, a1, x[base + 29], 23, 0xfde5380c);
+		a0 = MD5.HH(a0, b0, c0, d0, x[base + 2], 4, 0xa4beea44);
+		a1 = MD5.HH(a1, b1, c1, d1, x[base + 3], 4, 0xa4beea44);
+		d0 = MD5.HH(d0, a0, b0, c0, x[base + 8], 11, 0x4bdecfa9);
+		d1 = MD5.HH(d1, a1, b1, c1, x[base + 9], 11, 0x4bdecfa9);
+		c0 = MD5.HH(c0, d0, a0, b0, x[base + 14], 16, 0xf6bb4b60);
+		c1 = MD5.HH(c1, d1, a1, b1, x[base + 15], 16, 0xf6bb4b60);
+		b0 = MD5.HH(b0, c0, d0, a0, x[base + 20], 23, 0xbebfbc70);
+		b1 = MD5.HH(b1, c1, d1, a1, x[base + 21], 23, 0xbebfbc70);
+		a0 = MD5.HH(a0, b0, c0, d0, x[base + 26], 4, 0x289b7ec6);
+		a1 = MD5.HH(a1, b1, c1, d1, x[base + 27], 4, 0x289b7ec6);
+		d0 = MD5.HH(d0, a0, b0, c0, x[base + 0], 11, 0xeaa127fa);
+		d1 = MD5.HH(d1, a1, b1, c1, x[base + 1], 11, 0xeaa127fa);
+		c0 = MD5.HH(c0, d0, a0, b0, x[base + 6], 16, 0xd4ef3085);
+		c1 = MD5.HH(c1, d1, a1, b1, x[base + 7], 16, 0xd4ef3085);
+		b0 = MD5.HH(b0, c0, d0, a0, x[base + 12], 23, 0x04881d05);
+		b1 = MD5.HH(b1, c1, d1, a1, x[base + 13], 23, 0x04881d05);
+		a0 = MD5.HH(a0, b0, c0, d0, x[base + 18], 4, 0xd9d4d039);
+		a1 = MD5.HH(a1, b1, c1, d1, x[base + 19], 4, 0xd9d4d039);
+		d0 = MD5.HH(d0, a0, b0, c0, x[base + 24], 11, 0xe6db99e5);
+		d1 = MD5.HH(d1, a1, b1, c1, x[base + 25], 11, 0xe6db99e5);
+		c0 = MD5.HH(c0, d0, a0, b0, x[base + 30], 16, 0x1fa27cf8);
+		c1 = MD5.HH(c1, d1, a1, b1, x[base + 31], 16, 0x1fa27cf8);
+		b0 = MD5.HH(b0, c0, d0, a0, x[base + 4], 23, 0xc4ac5665);
+		b1 = MD5.HH(b1, c1, d1, a1, x[base + 5], 23, 0xc4ac5665);
+		a0 = MD5.II(a0, b0, c0, d0, x[base + 0], 6, 0xf4292244);
+		a1 = MD5.II(a1, b1, c1, d1, x[base + 1], 6, 0xf4292244);
+		d0 = MD5.II(d0, a0, b0, c0, x[base + 14], 10, 0x432aff97);
+		d1 = MD5.II(d1, a1, b1, c1, x[base + 15], 10, 0x432aff97);
+		c0 = MD5.II(c0, d0, a0, b0, x[base + 28], 15, 0xab9423a7);
+		c1 = MD5.II(c1, d1, a1, b1, x[base + 29], 15, 0xab9423a7);
+		b0 = MD5.II(b0, c0, d0, a0, x[base + 10], 21, 0xfc93a039);
+		b1 = MD5.II(b1, c1, d1, a1, x[base + 11], 21, 0xfc93a039);
+		a0 = MD5.II(a0, b0, c0, d0, x[base + 24], 6, 0x655b59c3);
+		a1 = MD5.II(a1, b1, c1, d1, x[base + 25], 6, 0x655b59c3);
+		d0 = MD5.II(d0, a0, b0, c0, x[base + 6], 10, 0x8f0ccc92);
+		d1 = MD5.II(d1, a1, b1, c1, x[base + 7], 10, 0x8f0ccc92);
+		c0 = MD5.II(c0, d0, a0, b0, x[base + 20], 15, 0xffeff47d);
+		c1 = MD5.II(c1, d1, a1, b1, x[base + 21], 15, 0xffeff47d);
+		b0 = MD5.II(b0, c0, d0, a0, x[base + 2], 21, 0x85845dd1);
+		b1 = MD5.II(b1, c1, d1, a1, x[base + 3], 21, 0x85845dd1);
+		a0 = MD5.II(a0, b0, c0, d0, x[base + 16], 6, 0x6fa87e4f);
+		a1 = MD5.II(a1, b1, c1, d1, x[base + 17], 6, 0x6fa87e4f);
+		d0 = MD5.II(d0, a0, b0, c0, x[base + 30], 10, 0xfe2ce6e0);
+		d1 = MD5.II(d1, a1, b1, c1, x[base + 31], 10, 0xfe2ce6e0);
+		c0 = MD5.II(c0, d0, a0, b0, x[base + 12], 15, 0xa3014314);
+		c1 = MD5.II(c1, d1, a1, b1, x[base + 13], 15, 0xa3014314);
+		b0 = MD5.II(b0, c0, d0, a0, x[base + 26], 21, 0x4e0811a1);
+		b1 = MD5.II(b1, c1, d1, a1, x[base + 27], 21, 0x4e0811a1);
+		a0 = MD5.II(a0, b0, c0, d0, x[base + 8], 6, 0xf7537e82);
+		a1 = MD5.II(a1, b1, c1, d1, x[base + 9], 6, 0xf7537e82);
+		d0 = MD5.II(d0, a0, b0, c0, x[base + 22], 10, 0xbd3af235);
+		d1 = MD5.II(d1, a1, b1, c1, x[base + 23], 10, 0xbd3af235);
+		c0 = MD5.II(c0, d0, a0, b0, x[base + 4], 15, 0x2ad7d2bb);
+		c1 = MD5.II(c1, d1, a1, b1, x[base + 5], 15, 0x2ad7d2bb);
+		b0 = MD5.II(b0, c0, d0, a0, x[base + 18], 21, 0xeb86d391);
+		b1 = MD5.II(b1, c1, d1, a1, x[base + 19], 21, 0xeb86d391);
+
+		state[0] += a0;
+		state[2] += b0;
+		state[4] += c0;
+		state[6] += d0;
+		state[1] += a1;
+		state[3] += b1;
+		state[5] += c1;
+		state[7] += d1;
+	}
+}
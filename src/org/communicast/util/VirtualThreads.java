@@ -0,0 +1,114 @@
+package org.communicast.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ֧߳,ͨԼJava 8
+ * Java 21ʱ
+ *
+ */
+public class VirtualThreads {
+	private static final Method of_virtual;//Thread.ofVirtual()
+	private static final Method unstarted;//Thread.Builder.unstarted(Runnable)
+	private static final Method new_executor;//Executors.newVirtualThreadPerTaskExecutor()
+	private static final Method is_virtual;//Thread.isVirtual()
+	private static volatile Boolean supported;//̽,״εisSupportedʱȷ
+
+	static {
+		Method of = null, start = null, executor = null, virtual = null;
+		try {
+			of = Thread.class.getMethod("ofVirtual");
+			start = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+			executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			virtual = Thread.class.getMethod("isVirtual");
+		} catch (ReflectiveOperationException e) {
+			of = null;
+		}
+		of_virtual = of;
+		unstarted = start;
+		new_executor = executor;
+		is_virtual = virtual;
+	}
+
+	/**
+	 * ǰлǷ֧߳
+	 * ʵʴһ߳̽,Java 19/20δԤʱڵʧ
+	 * @return
+	 */
+	public static boolean isSupported() {
+		Boolean result = supported;
+		if (result == null) {
+			result = probe();
+			supported = result;
+		}
+		return result;
+	}
+
+	/**
+	 * һյ̲߳ȴ
+	 * @return ɹtrue
+	 */
+	private static boolean probe() {
+		if (of_virtual == null) {
+			return false;
+		}
+		try {
+			Thread thread = (Thread) unstarted.invoke(of_virtual.invoke(null), new Runnable() {
+				public void run() {
+				}
+			});
+			thread.start();
+			thread.join();
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return false;
+		} catch (InterruptedException e) {
+			//߳
+			Thread.currentThread().interrupt();
+			return true;
+		}
+	}
+
+	/**
+	 * ߳Ƿ߳
+	 * @param thread
+	 * @return
+	 */
+	public static boolean isVirtual(Thread thread) {
+		if (is_virtual == null) {
+			return false;
+		}
+		try {
+			return (Boolean) is_virtual.invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * δ߳
+	 * @param task
+	 * @return
+	 */
+	public static Thread newThread(Runnable task) {
+		try {
+			return (Thread) unstarted.invoke(of_virtual.invoke(null), task);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads not supported", e);
+		}
+	}
+
+	/**
+	 * ÿһ̵ִ߳
+	 * @return
+	 */
+	public static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) new_executor.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads not supported", e);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package org.communicast.util;
 
 import java.security.MessageDigest;
+import java.util.Arrays;
 
 
 /**
@@ -12,11 +13,13 @@ public class WorkProof {
 	private final int difficulity_required;
 	private final String algorithm;
 	private byte[] nonce;
+	private int nonce_length;//nonceЧ
 	private static final int MIN_NONCE_SIZE;//nonceСߴ
+	private static final int MAX_NONCE_SIZE = 16;//nonceߴ
 	private final boolean suffix;
 	private MessageDigest digest;
 	private WorkResult result;
-	private boolean quit;
+	private volatile boolean quit;
 	private final byte[] source;
 	
 	static {
@@ -34,7 +37,7 @@ public class WorkProof {
 		public final byte[] source;
 		
 		private WorkResult(int difficulity) {
-			nonce = WorkProof.this.nonce;
+			nonce = Arrays.copyOf(WorkProof.this.nonce, nonce_length);
 			this.difficulity = difficulity;
 			this.source = WorkProof.this.source;
 		}
@@ -64,6 +67,8 @@ public class WorkProof {
 	
 	/**
 	 * ʼ㹤
+	 * MD5nonceڽβʱ,ǰ׺ֻһ,ÿγԴм״̬
+	 * ѭвڴ
 	 * @return ɹtrue,жϷfalse
 	 * @throws Exception 
 	 */
@@ -73,31 +78,78 @@ public class WorkProof {
 			return false;
 		}
 		
-		digest = MessageDigest.getInstance(algorithm);
-		if (difficulity_required > digest.getDigestLength() * 8) {
-			throw new Exception("Difficulity required too long");
+		if ("MD5".equalsIgnoreCase(algorithm)) {
+			if (difficulity_required > MD5.DIGEST_LENGTH * 8) {
+				throw new Exception("Difficulity required too long");
+			}
+		} else {
+			digest = MessageDigest.getInstance(algorithm);
+			if (difficulity_required > digest.getDigestLength() * 8) {
+				throw new Exception("Difficulity required too long");
+			}
+		}
+		nonce = new byte[MAX_NONCE_SIZE];
+		nonce_length = MIN_NONCE_SIZE;
+		
+		int difficulity;
+		if (digest == null) {
+			difficulity = md5Work();
+		} else {
+			difficulity = digestWork();
+		}
+		result = new WorkResult(difficulity);
+		return result.difficulity >= difficulity_required;
+	}
+	
+	/**
+	 * ʹMD5,nonceڽβʱǰ׺м״̬
+	 * @return һγԵѶ
+	 */
+	private int md5Work() {
+		MD5 prefix = new MD5();
+		MD5 md5 = new MD5();
+		byte[] output = new byte[MD5.DIGEST_LENGTH];
+		if (suffix) {
+			prefix.update(source);
 		}
-		byte[] buffer = new byte[source.length + MIN_NONCE_SIZE];
-		nonce = new byte[MIN_NONCE_SIZE];
-		System.arraycopy(source, 0, buffer, suffix ? 0 : MIN_NONCE_SIZE, source.length);		
 		int difficulity;
 		do {
-			if (source.length + nonce.length > buffer.length) {
-				byte[] temp = buffer;
-				buffer = new byte[source.length + nonce.length];
-				System.arraycopy(temp, suffix ? 0:nonce.length - 1, buffer, suffix ? 0:nonce.length, source.length);		
+			md5.copyFrom(prefix);
+			md5.update(nonce, 0, nonce_length);
+			if (!suffix) {
+				md5.update(source);
 			}
-
-			System.arraycopy(nonce, 0, buffer, suffix ? source.length: 0, nonce.length);
-			difficulity = getDifficulity(digest.digest(buffer));
-			if (difficulity < difficulity_required) {
-				carry(0);
+			md5.digest(output, 0);
+			difficulity = getDifficulity(output);
+			if (difficulity >= difficulity_required || !carry()) {
+				break;
+			}
+		} while (!quit);
+		return difficulity;
+	}
+	
+	/**
+	 * ʹϣ㷨
+	 * @return һγԵѶ
+	 */
+	private int digestWork() throws Exception {
+		byte[] output = new byte[digest.getDigestLength()];
+		int difficulity;
+		do {
+			if (suffix) {
+				digest.update(source);
+				digest.update(nonce, 0, nonce_length);
 			} else {
+				digest.update(nonce, 0, nonce_length);
+				digest.update(source);
+			}
+			digest.digest(output, 0, output.length);
+			difficulity = getDifficulity(output);
+			if (difficulity >= difficulity_required || !carry()) {
 				break;
 			}
-		} while ( !quit);
-		result = new WorkResult(difficulity);
-		return result.difficulity >= difficulity_required;
+		} while (!quit);
+		return difficulity;
 	}
 	
 	/**
@@ -109,21 +161,19 @@ public class WorkProof {
 	}
 	
 	/**
-	 * nonceλ
-	 * @param i
-	 * @return void
+	 * nonceԭؼһ,λǰ,ʱһֽ
+	 * @return nonceѴߴ緵false
 	 */
-	private void carry(int i) {
-		if (i >= nonce.length) {
-			//,Nonce
-			byte[] temp = nonce;
-			nonce = new byte[nonce.length + 1 ];
-			System.arraycopy(temp, 0, nonce, 0, temp.length);
-		}
-		
-		if (++nonce[i] == 0) {
-			carry(i+1);
+	private boolean carry() {
+		for (int i = 0; i < MAX_NONCE_SIZE; i++) {
+			if (i == nonce_length) {
+				nonce_length++;
+			}
+			if (++nonce[i] != 0) {
+				return true;
+			}
 		}
+		return false;
 	}
 	
 	/**
@@ -0,0 +1,132 @@
+package org.communicast.util;
+
+import java.util.Random;
+
+/**
+ * ֤У׼
+ * ڲͬ߳µĹϣٶ,ѡߵ߳
+ *
+ */
+public class WorkProofCalibration {
+	private static final int FIRST_WARMUP_TIME = 300;//״Ԥʱ,ȴʱ,
+	private static final int WARMUP_TIME = 50;//ÿ߳Ԥʱ,
+	private static final int MEASURE_TIME = 150;//ÿ߳Ĳʱ,
+	private static final double TOLERANCE = 0.03;//ٶ3%ʱѡٵ߳
+
+	private final int[] thread_nums;//߳
+	private final double[] hash_rates;//Ӧÿϣ
+	private final int best;//߳
+
+	private WorkProofCalibration(int[] thread_nums, double[] hash_rates) {
+		this.thread_nums = thread_nums;
+		this.hash_rates = hash_rates;
+		int best = 0;
+		for (int i = 1; i < thread_nums.length; i++) {
+			if (hash_rates[i] > hash_rates[best] * (1 + TOLERANCE)) {
+				best = i;
+			}
+		}
+		this.best = best;
+	}
+
+	/**
+	 * 1,2,4...ֱmax_threads̵߳Ĺϣٶ,ʱԼÿ߳200,״Ԥ
+	 * @param max_threads ߳
+	 * @param multi_lane Ƿ·
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public static WorkProofCalibration run(int max_threads, boolean multi_lane) throws InterruptedException {
+		max_threads = Math.max(1, max_threads);
+		int count = 1;
+		for (int n = 1; n < max_threads; n <<= 1) {
+			count++;
+		}
+		int[] thread_nums = new int[count];
+		double[] hash_rates = new double[count];
+
+		byte[] source = new byte[64];
+		new Random().nextBytes(source);
+		WorkProofScheduler scheduler = new WorkProofScheduler(1, multi_lane);
+		try {
+			for (int i = 0; i < count; i++) {
+				thread_nums[i] = Math.min(1 << i, max_threads);
+				scheduler.setThreadNum(thread_nums[i]);
+				//Ѷȡ,ڼ䲻
+				WorkProofScheduler.Job job = scheduler.submit(source, MD5.DIGEST_LENGTH * 8, 0);
+				Thread.sleep(i == 0 ? FIRST_WARMUP_TIME : WARMUP_TIME);
+				long hashes = job.getHashes();
+				long start = System.nanoTime();
+				Thread.sleep(MEASURE_TIME);
+				hash_rates[i] = (job.getHashes() - hashes) * 1e9 / (System.nanoTime() - start);
+				job.cancel();
+			}
+		} finally {
+			scheduler.shutdown();
+		}
+		return new WorkProofCalibration(thread_nums, hash_rates);
+	}
+
+	/**
+	 * ߵ߳
+	 * @return
+	 */
+	public int getThreadNum() {
+		return thread_nums[best];
+	}
+
+	/**
+	 * ߳µÿϣ
+	 * @return
+	 */
+	public double getHashRate() {
+		return hash_rates[best];
+	}
+
+	/**
+	 * ָ߳ÿϣ,δ߳ȡֵ
+	 * @param threads
+	 * @return
+	 */
+	public double getHashRate(int threads) {
+		double rate = 0;
+		for (int i = 0; i < thread_nums.length && thread_nums[i] <= threads; i++) {
+			rate = hash_rates[i];
+		}
+		return rate;
+	}
+
+	/**
+	 * ߳´ﵽѶȵʱ
+	 * @param difficulity
+	 * @return 
+	 */
+	public long getExpectedTime(int difficulity) {
+		return getExpectedTime(difficulity, getThreadNum());
+	}
+
+	/**
+	 * ָ߳´ﵽѶȵʱ,Ϊ2^Ѷ
+	 * @param difficulity
+	 * @param threads
+	 * @return ,޲ݷ-1
+	 */
+	public long getExpectedTime(int difficulity, int threads) {
+		double rate = getHashRate(threads);
+		if (rate <= 0) {
+			return -1;
+		}
+		return (long) (Math.pow(2, difficulity) / rate * 1000);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < thread_nums.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(thread_nums[i]).append(" threads:").append((long) hash_rates[i]).append("H/s");
+		}
+		return sb.append(",best:").append(getThreadNum()).toString();
+	}
+}
@@ -0,0 +1,443 @@
+package org.communicast.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * ֤
+ * ȼύ˳Ŷ,߳ͬʱ
+ * nonceռ䰴黮,߳ȡһ,ױ仯ʱڿ߽л
+ * ϣ㷨ΪMD5,nonceݽβ
+ *
+ */
+public class WorkProofScheduler {
+	public static final int CHUNK_SIZE = 1 << 16;//ÿȡnonce
+	private static final int CHECK_INTERVAL = 1024;//ÿٴμǷ
+	private static final int MIN_NONCE_SIZE = 3;//nonceС3ֽ
+
+	private final PriorityQueue<Job> queue;
+	private int thread_num;//߳
+	private int live_num;//ļ߳
+	private final AtomicLong sequence;//ύ,ͬȼύȼ
+	private final boolean multi_lane;//Ƿ·
+	private final boolean vector;//·ʱǷʹVector API
+	private volatile boolean shutdown;
+
+	/**
+	 * 
+	 */
+	public static class Job implements Comparable<Job> {
+		private final byte[] source;
+		private final int difficulity;
+		private final int priority;
+		private final long seq;
+		private final MD5 prefix;//ݵм״̬,ֻ
+		private final AtomicLong next_chunk;//һȡnonce
+		private final LongAdder hashes;//Ѽ
+		private final CompletableFuture<byte[]> result;//ɹõnonce
+		private volatile long started;//ʼʱ,
+		private volatile long finished;//ʱ,
+
+		private Job(byte[] source, int difficulity, int priority, long seq) {
+			this.source = source;
+			this.difficulity = difficulity;
+			this.priority = priority;
+			this.seq = seq;
+			prefix = new MD5();
+			prefix.update(source);
+			next_chunk = new AtomicLong();
+			hashes = new LongAdder();
+			result = new CompletableFuture<byte[]>();
+		}
+
+		public int compareTo(Job other) {
+			if (priority != other.priority) {
+				return priority > other.priority ? -1 : 1;
+			}
+			return Long.compare(seq, other.seq);
+		}
+
+		/**
+		 * ,ɹõnonce,ȡʱCancellationException
+		 * @return
+		 */
+		public CompletableFuture<byte[]> getResult() {
+			return result;
+		}
+
+		public byte[] getSource() {
+			return source;
+		}
+
+		public int getDifficulity() {
+			return difficulity;
+		}
+
+		public int getPriority() {
+			return priority;
+		}
+
+		/**
+		 * ȡ
+		 * @return δtrue
+		 */
+		public boolean cancel() {
+			return result.cancel(false);
+		}
+
+		public boolean isDone() {
+			return result.isDone();
+		}
+
+		/**
+		 * ѼĹϣ
+		 * @return
+		 */
+		public long getHashes() {
+			return hashes.sum();
+		}
+
+		/**
+		 * ٶ
+		 * @return ÿϣ,δʼ0
+		 */
+		public double getHashRate() {
+			long start = started;
+			if (start == 0) {
+				return 0;
+			}
+			long end = finished != 0 ? finished : System.currentTimeMillis();
+			return getHashes() * 1000.0 / Math.max(1, end - start);
+		}
+
+		/**
+		 * Ԥʣʱ,ÿγ໥,ʣʼΪ2^Ѷ
+		 * @return ,ѽ0,ٶݷ-1
+		 */
+		public long getEstimatedTime() {
+			if (isDone()) {
+				return 0;
+			}
+			double rate = getHashRate();
+			if (rate <= 0) {
+				return -1;
+			}
+			return (long) (Math.pow(2, difficulity) / rate * 1000);
+		}
+
+		private void finish() {
+			finished = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * @param threads ߳
+	 */
+	public WorkProofScheduler(int threads) {
+		this(threads, true);
+	}
+
+	/**
+	 * @param threads ߳
+	 * @param multi_lane Ƿ·,falseʱ
+	 */
+	public WorkProofScheduler(int threads, boolean multi_lane) {
+		this(threads, multi_lane, true);
+	}
+
+	/**
+	 * @param threads ߳
+	 * @param multi_lane Ƿ·,falseʱ
+	 * @param vector ·ʱǷʹVector API,л֧ʱʹñ·
+	 */
+	public WorkProofScheduler(int threads, boolean multi_lane, boolean vector) {
+		this.multi_lane = multi_lane;
+		this.vector = vector;
+		queue = new PriorityQueue<Job>();
+		sequence = new AtomicLong();
+		setThreadNum(threads);
+	}
+
+	/**
+	 * ߳,߳굱ǰ˳
+	 * @param threads
+	 */
+	public void setThreadNum(int threads) {
+		synchronized (queue) {
+			thread_num = Math.max(1, threads);
+			while (live_num < thread_num) {
+				Thread t = new Thread(new Worker(live_num), "WORK_PROOF_" + live_num);
+				t.setDaemon(true);
+				t.start();
+				live_num++;
+			}
+			queue.notifyAll();
+		}
+	}
+
+	public int getThreadNum() {
+		synchronized (queue) {
+			return thread_num;
+		}
+	}
+
+	/**
+	 * ύ
+	 * @param source 㹤
+	 * @param difficulity Ѷ,жٸ0ͷ
+	 * @param priority ȼ,ȼ
+	 * @return
+	 */
+	public Job submit(byte[] source, int difficulity, int priority) {
+		if (difficulity > MD5.DIGEST_LENGTH * 8) {
+			throw new IllegalArgumentException("Difficulity required too long");
+		}
+		Job job = new Job(source, difficulity, priority, sequence.getAndIncrement());
+		synchronized (queue) {
+			if (shutdown) {
+				job.cancel();
+				return job;
+			}
+			prune();
+			queue.add(job);
+			queue.notifyAll();
+		}
+		return job;
+	}
+
+	/**
+	 * ɵ,ڲҪ㹤Ĺ㲥
+	 * @param source 
+	 * @param nonce ֮
+	 * @return
+	 */
+	public static Job completed(byte[] source, byte[] nonce) {
+		Job job = new Job(source, 0, 0, -1);
+		job.started = System.currentTimeMillis();
+		job.finish();
+		job.result.complete(nonce);
+		return job;
+	}
+
+	/**
+	 * ȴкͼе
+	 * @return
+	 */
+	public int getPendingNum() {
+		synchronized (queue) {
+			prune();
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Ƴȡ,queueʱ
+	 */
+	private void prune() {
+		queue.removeIf(new Predicate<Job>() {
+			public boolean test(Job job) {
+				return job.isDone();
+			}
+		});
+	}
+
+	/**
+	 * ȡ񲢽߳
+	 */
+	public void shutdown() {
+		synchronized (queue) {
+			shutdown = true;
+			for (Job job : queue) {
+				job.cancel();
+			}
+			queue.clear();
+			queue.notifyAll();
+		}
+	}
+
+	/**
+	 * ȡö׵δ,Ϊʱȴ
+	 * @param index ߳
+	 * @return رջ߳Ҫ˳ʱnull
+	 * @throws InterruptedException
+	 */
+	private Job head(int index) throws InterruptedException {
+		synchronized (queue) {
+			while (!shutdown) {
+				if (index >= thread_num) {
+					break;
+				}
+				Job job;
+				while ((job = queue.peek()) != null && job.isDone()) {
+					queue.poll();
+				}
+				if (job != null) {
+					return job;
+				}
+				queue.wait();
+			}
+			live_num--;
+			return null;
+		}
+	}
+
+	/**
+	 * ,Ƴ
+	 * @param job
+	 */
+	private void remove(Job job) {
+		job.finish();
+		synchronized (queue) {
+			queue.remove(job);
+		}
+	}
+
+	/**
+	 * ߳,ÿ̸߳ԼժҪ״̬ͻ,вڴ
+	 */
+	private class Worker implements Runnable {
+		private final int index;
+		private final MD5 md5 = new MD5();
+		private final byte[] nonce = new byte[8];
+		private final byte[] output = new byte[MD5.DIGEST_LENGTH];
+		private final MD5Lanes lanes = multi_lane ? new MD5Lanes(MD5Kernel.get(vector)) : null;
+
+		Worker(int index) {
+			this.index = index;
+		}
+
+		public void run() {
+			try {
+				Job job;
+				while ((job = head(index)) != null) {
+					if (job.started == 0) {
+						job.started = System.currentTimeMillis();
+					}
+					long start = job.next_chunk.getAndIncrement() * CHUNK_SIZE;
+					int nonce_length = lanes != null ? searchLanes(job, start) : search(job, start);
+					if (nonce_length > 0 && job.result.complete(Arrays.copyOf(nonce, nonce_length))) {
+						remove(job);
+					} else if (job.isDone()) {
+						remove(job);
+					}
+				}
+			} catch (InterruptedException e) {
+			}
+		}
+
+		/**
+		 * һnonce
+		 * @param job
+		 * @param start ʼnonce
+		 * @return ҵʱnonce,򷵻0
+		 */
+		private int search(Job job, long start) {
+			int nonce_length = encode(start);
+			int done = 0;
+			int reported = 0;
+			try {
+				for (int i = 0; i < CHUNK_SIZE; i++) {
+					md5.copyFrom(job.prefix);
+					md5.update(nonce, 0, nonce_length);
+					md5.digest(output, 0);
+					done++;
+					if (WorkProof.getDifficulity(output) >= job.difficulity) {
+						return nonce_length;
+					}
+					if (done % CHECK_INTERVAL == 0) {
+						//ʱ¼,ٶͳƸ׼ȷ
+						job.hashes.add(done - reported);
+						reported = done;
+						if (job.isDone()) {
+							return 0;
+						}
+					}
+					nonce_length = increase(nonce_length);
+				}
+				return 0;
+			} finally {
+				job.hashes.add(done - reported);
+			}
+		}
+
+		/**
+		 * һnonceж·,Сnonceȱ仯λö·ı,ͬһnonceͬ
+		 * @param job
+		 * @param start ʼnonce
+		 * @return ҵʱnonceдnonce鲢س,򷵻0
+		 */
+		private int searchLanes(Job job, long start) {
+			int nonce_length = encode(start);
+			lanes.prepare(job.prefix, nonce_length);
+			int n = lanes.lanes();
+			int done = 0;
+			int reported = 0;
+			try {
+				for (int i = 0; i < CHUNK_SIZE; i += n) {
+					if (nonce_length != lanes.getNonceLength()) {
+						lanes.prepare(job.prefix, nonce_length);
+					}
+					for (int l = 0; l < n; l++) {
+						lanes.setNonce(l, nonce);
+						nonce_length = increase(nonce_length);
+					}
+					lanes.compute();
+					done += n;
+					for (int l = 0; l < n; l++) {
+						if (lanes.getDifficulity(l) >= job.difficulity) {
+							return encode(start + i + l);
+						}
+					}
+					if (done % CHECK_INTERVAL == 0) {
+						//ʱ¼,ٶͳƸ׼ȷ
+						job.hashes.add(done - reported);
+						reported = done;
+						if (job.isDone()) {
+							return 0;
+						}
+					}
+				}
+				return 0;
+			} finally {
+				job.hashes.add(done - reported);
+			}
+		}
+
+		/**
+		 * ֵдΪnonce,λǰ,3ֽ
+		 * @param value
+		 * @return nonce
+		 */
+		private int encode(long value) {
+			int length = MIN_NONCE_SIZE;
+			for (int i = 0; i < nonce.length; i++) {
+				nonce[i] = (byte) (value >>> (i * 8));
+				if (nonce[i] != 0 && i >= length) {
+					length = i + 1;
+				}
+			}
+			return length;
+		}
+
+		/**
+		 * nonceԭؼһ,ʱһֽ
+		 * @param length
+		 * @return ³
+		 */
+		private int increase(int length) {
+			for (int i = 0; i < nonce.length; i++) {
+				if (i == length) {
+					length++;
+				}
+				if (++nonce[i] != 0) {
+					break;
+				}
+			}
+			return length;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.communicast.util;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector APIʵ,·Ϊѡɵint(AVX2Ϊ8,AVX-512Ϊ16)
+ * Java 16ķģjdk.incubator.vector,Java 8,src17Ŀ¼:
+ * javac --release 17 --add-modules jdk.incubator.vector -cp bin -d bin src17/org/communicast/util/VectorMD5Kernel.java
+ * ʱӲ--add-modules jdk.incubator.vectorŻᱻMD5Kernel,ʹñʵ
+ * 64дѭչ,չʱȫ,װ䷴
+ *
+ */
+final class VectorMD5Kernel extends MD5Kernel {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	private static final int[] WORDS = {//ÿʹõϢ
+		0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+		1, 6, 11, 0, 5, 10, 15, 4, 9, 14, 3, 8, 13, 2, 7, 12,
+		5, 8, 11, 14, 1, 4, 7, 10, 13, 0, 3, 6, 9, 12, 15, 2,
+		0, 7, 14, 5, 12, 3, 10, 1, 8, 15, 6, 13, 4, 11, 2, 9
+	};
+	private static final int[] SHIFTS = {//ÿѭλ
+		7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22,
+		5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20,
+		4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23,
+		6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21
+	};
+	private static final int[] CONSTANTS = {//ÿӷ
+		0xd76aa478, 0xe8c7b756, 0x242070db, 0xc1bdceee, 0xf57c0faf, 0x4787c62a, 0xa8304613, 0xfd469501,
+		0x698098d8, 0x8b44f7af, 0xffff5bb1, 0x895cd7be, 0x6b901122, 0xfd987193, 0xa679438e, 0x49b40821,
+		0xf61e2562, 0xc040b340, 0x265e5a51, 0xe9b6c7aa, 0xd62f105d, 0x02441453, 0xd8a1e681, 0xe7d3fbc8,
+		0x21e1cde6, 0xc33707d6, 0xf4d50d87, 0x455a14ed, 0xa9e3e905, 0xfcefa3f8, 0x676f02d9, 0x8d2a4c8a,
+		0xfffa3942, 0x8771f681, 0x6d9d6122, 0xfde5380c, 0xa4beea44, 0x4bdecfa9, 0xf6bb4b60, 0xbebfbc70,
+		0x289b7ec6, 0xeaa127fa, 0xd4ef3085, 0x04881d05, 0xd9d4d039, 0xe6db99e5, 0x1fa27cf8, 0xc4ac5665,
+		0xf4292244, 0x432aff97, 0xab9423a7, 0xfc93a039, 0x655b59c3, 0x8f0ccc92, 0xffeff47d, 0x85845dd1,
+		0x6fa87e4f, 0xfe2ce6e0, 0xa3014314, 0x4e0811a1, 0xf7537e82, 0xbd3af235, 0x2ad7d2bb, 0xeb86d391
+	};
+
+	VectorMD5Kernel() {
+		super(LANES);
+	}
+
+	@Override
+	void transform(int[] x, int base, int[] state) {
+		IntVector a0 = IntVector.fromArray(SPECIES, state, 0);
+		IntVector b0 = IntVector.fromArray(SPECIES, state, LANES);
+		IntVector c0 = IntVector.fromArray(SPECIES, state, 2 * LANES);
+		IntVector d0 = IntVector.fromArray(SPECIES, state, 3 * LANES);
+		IntVector a = a0, b = b0, c = c0, d = d0;
+
+		//ѡдΪʽ,MD5еıͬ;ÿһѭ,ѭûз֧
+		for (int i = 0; i < 16; i++) {
+			IntVector f = d.lanewise(VectorOperators.XOR, b.and(c.lanewise(VectorOperators.XOR, d)));
+			IntVector t = d;
+			d = c;
+			c = b;
+			b = step(a, b, f, x, base, i);
+			a = t;
+		}
+		for (int i = 16; i < 32; i++) {
+			IntVector f = c.lanewise(VectorOperators.XOR, d.and(b.lanewise(VectorOperators.XOR, c)));
+			IntVector t = d;
+			d = c;
+			c = b;
+			b = step(a, b, f, x, base, i);
+			a = t;
+		}
+		for (int i = 32; i < 48; i++) {
+			IntVector f = b.lanewise(VectorOperators.XOR, c).lanewise(VectorOperators.XOR, d);
+			IntVector t = d;
+			d = c;
+			c = b;
+			b = step(a, b, f, x, base, i);
+			a = t;
+		}
+		for (int i = 48; i < 64; i++) {
+			IntVector f = c.lanewise(VectorOperators.XOR, b.or(d.not()));
+			IntVector t = d;
+			d = c;
+			c = b;
+			b = step(a, b, f, x, base, i);
+			a = t;
+		}
+
+		a0.add(a).intoArray(state, 0);
+		b0.add(b).intoArray(state, LANES);
+		c0.add(c).intoArray(state, 2 * LANES);
+		d0.add(d).intoArray(state, 3 * LANES);
+	}
+
+	/**
+	 * i:b + ((a + f + x[k] + t[i]) <<< s[i])
+	 */
+	private static IntVector step(IntVector a, IntVector b, IntVector f, int[] x, int base, int i) {
+		IntVector sum = a.add(f).add(IntVector.fromArray(SPECIES, x, base + WORDS[i] * LANES)).add(CONSTANTS[i]);
+		return b.add(sum.lanewise(VectorOperators.ROL, SHIFTS[i]));
+	}
+}